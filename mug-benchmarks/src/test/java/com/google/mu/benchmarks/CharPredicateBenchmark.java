@@ -0,0 +1,64 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import static com.google.mu.util.Substring.consecutive;
+
+import java.util.Collections;
+
+import com.google.caliper.Benchmark;
+import com.google.mu.util.CharPredicate;
+import com.google.mu.util.Substring;
+
+/** Compares scanning with precomputed {@link CharPredicate} against the equivalent or() chains. */
+public class CharPredicateBenchmark {
+  private static final String TEXT =
+      String.join(" ", Collections.nCopies(1000, "The_quick brown-fox jumps over 13 lazy dogs."));
+
+  private static final Substring.Pattern WORD_CHAIN =
+      consecutive(CharPredicate.range('a', 'z').orRange('A', 'Z').orRange('0', '9').or('_'));
+  private static final Substring.Pattern WORD_PRECOMPUTED = consecutive(CharPredicate.WORD);
+  private static final Substring.Pattern ALPHA_CHAIN =
+      consecutive(CharPredicate.range('a', 'z').orRange('A', 'Z'));
+  private static final Substring.Pattern ALPHA_PRECOMPUTED = consecutive(CharPredicate.ALPHA);
+
+  @Benchmark
+  long wordChain(int n) {
+    return scan(WORD_CHAIN, n);
+  }
+
+  @Benchmark
+  long wordPrecomputed(int n) {
+    return scan(WORD_PRECOMPUTED, n);
+  }
+
+  @Benchmark
+  long alphaChain(int n) {
+    return scan(ALPHA_CHAIN, n);
+  }
+
+  @Benchmark
+  long alphaPrecomputed(int n) {
+    return scan(ALPHA_PRECOMPUTED, n);
+  }
+
+  private static long scan(Substring.Pattern pattern, int n) {
+    long found = 0;
+    for (int i = 0; i < n; i++) {
+      found += pattern.repeatedly().match(TEXT).count();
+    }
+    return found;
+  }
+}
@@ -0,0 +1,69 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import static com.google.mu.util.Substring.first;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.mu.util.CharPredicate;
+import com.google.mu.util.Substring;
+
+/**
+ * Compares splitting a {@link ByteBuffer} with {@code first(char)}, which scans 8 bytes at a time,
+ * against the char-by-char scan of {@code first(CharPredicate)}.
+ */
+public class DelimiterScanBenchmark {
+  private static final Substring.RepeatingPattern CHAR_DELIMITER = first('\n').repeatedly();
+  private static final Substring.RepeatingPattern PREDICATE_DELIMITER =
+      first(CharPredicate.is('\n')).repeatedly();
+
+  @Param({"1024", "65536", "1048576"})
+  int size;
+
+  private ByteBuffer bytes;
+
+  @BeforeExperiment
+  void setUp() {
+    StringBuilder builder = new StringBuilder(size);
+    while (builder.length() < size) {
+      builder.append("2021-10-01 12:00:00.000 INFO some log message that is fairly long\n");
+    }
+    bytes = ByteBuffer.allocateDirect(size).put(builder.substring(0, size).getBytes(UTF_8));
+    bytes.flip();
+  }
+
+  @Benchmark
+  long charDelimiter(int n) {
+    return split(CHAR_DELIMITER, n);
+  }
+
+  @Benchmark
+  long predicateDelimiter(int n) {
+    return split(PREDICATE_DELIMITER, n);
+  }
+
+  private long split(Substring.RepeatingPattern delimiter, int n) {
+    long lines = 0;
+    for (int i = 0; i < n; i++) {
+      lines += delimiter.split(bytes).count();
+    }
+    return lines;
+  }
+}
@@ -0,0 +1,69 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import static com.google.mu.util.Substring.first;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.mu.util.Substring;
+
+/**
+ * Compares parsing a query string into a map through {@code BiStream} against passing the pairs
+ * directly to {@code Map::put}.
+ */
+public class KeyValueSplitBenchmark {
+  private static final Substring.RepeatingPattern AMPERSANDS = first('&').repeatedly();
+  private static final Substring.Pattern EQUALS = first('=');
+
+  @Param({"20", "200"})
+  int pairs;
+
+  private String queryString;
+
+  @BeforeExperiment
+  void setUp() {
+    queryString =
+        IntStream.range(0, pairs)
+            .mapToObj(i -> "key" + i + "=value" + i)
+            .collect(Collectors.joining("&"));
+  }
+
+  @Benchmark
+  int biStreamToMap(int n) {
+    int total = 0;
+    for (int i = 0; i < n; i++) {
+      total += AMPERSANDS.splitKeyValuesAround(EQUALS, queryString).toMap().size();
+    }
+    return total;
+  }
+
+  @Benchmark
+  int consumerToMap(int n) {
+    int total = 0;
+    for (int i = 0; i < n; i++) {
+      Map<String, String> map = new HashMap<>();
+      AMPERSANDS.splitKeyValuesAround(EQUALS, queryString, map::put);
+      total += map.size();
+    }
+    return total;
+  }
+}
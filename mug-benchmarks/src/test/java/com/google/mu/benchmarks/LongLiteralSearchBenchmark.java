@@ -0,0 +1,90 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import static com.google.mu.util.Substring.first;
+import static com.google.mu.util.Substring.last;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.mu.util.Substring;
+
+/** Compares searching long literals in a large payload against {@code String.indexOf()}. */
+public class LongLiteralSearchBenchmark {
+  private static final String MARKER =
+      "----- END OF SECTION: 0123456789abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ -----";
+
+  @Param({"16", "40", "90"})
+  int markerLength;
+
+  /** Payload with the marker at the end, to be searched forward. */
+  private String payload;
+
+  /** Payload with the marker at the beginning, to be searched backward. */
+  private String reversePayload;
+  private String marker;
+  private Substring.Pattern first;
+  private Substring.Pattern last;
+
+  @BeforeExperiment
+  void setUp() {
+    marker = MARKER.substring(0, markerLength);
+    StringBuilder builder = new StringBuilder();
+    while (builder.length() < 4_000_000) {
+      builder.append("----- The quick brown fox jumps over the lazy dog; SECTION: 0123 -----\n");
+    }
+    reversePayload = marker + builder;
+    payload = builder.append(marker).toString();
+    first = first(marker);
+    last = last(marker);
+  }
+
+  @Benchmark
+  int stringIndexOf(int n) {
+    int total = 0;
+    for (int i = 0; i < n; i++) {
+      total += payload.indexOf(marker);
+    }
+    return total;
+  }
+
+  @Benchmark
+  int substringFirst(int n) {
+    int total = 0;
+    for (int i = 0; i < n; i++) {
+      total += first.in(payload).get().index();
+    }
+    return total;
+  }
+
+  @Benchmark
+  int stringLastIndexOf(int n) {
+    int total = 0;
+    for (int i = 0; i < n; i++) {
+      total += reversePayload.lastIndexOf(marker);
+    }
+    return total;
+  }
+
+  @Benchmark
+  int substringLast(int n) {
+    int total = 0;
+    for (int i = 0; i < n; i++) {
+      total += last.in(reversePayload).get().index();
+    }
+    return total;
+  }
+}
@@ -0,0 +1,68 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.google.caliper.Benchmark;
+import com.google.common.collect.ImmutableList;
+import com.google.mu.util.Substring;
+
+/** Compares {@link Substring#firstOf} against chaining 30 {@code first()} alternatives. */
+public class MultiLiteralSearchBenchmark {
+  private static final List<String> KEYWORDS =
+      IntStream.range(0, 30).mapToObj(i -> "KEYWORD" + i + ":").collect(Collectors.toList());
+  private static final ImmutableList<String> LINES =
+      IntStream.range(0, 100)
+          .mapToObj(
+              i -> "2021-10-01 12:00:00.000 [worker-" + i + "] some log message that is long "
+                  + KEYWORDS.get(i % KEYWORDS.size()) + " and trailing details")
+          .collect(ImmutableList.toImmutableList());
+
+  private static final Substring.Pattern OR_CHAIN =
+      KEYWORDS.stream().map(Substring::first).reduce(Substring.NONE, Substring.Pattern::or);
+  private static final Substring.Pattern FIRST_OCCURRENCE =
+      KEYWORDS.stream().map(Substring::first).collect(Substring.firstOccurrence());
+  private static final Substring.Pattern FIRST_OF = Substring.firstOf(KEYWORDS);
+
+  @Benchmark
+  int orChain(int n) {
+    return search(OR_CHAIN, n);
+  }
+
+  @Benchmark
+  int firstOccurrence(int n) {
+    return search(FIRST_OCCURRENCE, n);
+  }
+
+  @Benchmark
+  int firstOf(int n) {
+    return search(FIRST_OF, n);
+  }
+
+  private static int search(Substring.Pattern pattern, int n) {
+    int found = 0;
+    for (int i = 0; i < n; i++) {
+      for (String line : LINES) {
+        if (pattern.in(line).isPresent()) {
+          found++;
+        }
+      }
+    }
+    return found;
+  }
+}
@@ -0,0 +1,205 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Iterables;
+import com.google.mu.util.CharPredicate;
+import com.google.mu.util.Substring;
+
+/**
+ * JMH benchmarks for the {@link Substring} factories and combinators, side by side with the
+ * equivalent {@link String} and Guava {@link Splitter} operations where there is one.
+ *
+ * <p>The input is made of {@code key<i> = (needle <i>) lorem lorem...,} records, each about {@code
+ * spacing} chars long. So the smaller the spacing, the denser the hits. To run:
+ *
+ * <pre>{@code
+ * mvn -pl mug-benchmarks -am test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.google.mu.benchmarks.SubstringBenchmark
+ * }</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubstringBenchmark {
+  private static final String HEAD = "<head>";
+  private static final String TAIL = "<tail>";
+
+  private static final Substring.Pattern FIRST = Substring.first(TAIL);
+  private static final Substring.Pattern LAST = Substring.last(HEAD);
+  private static final Substring.RepeatingPattern BETWEEN =
+      Substring.between("(", ")").repeatedly();
+  private static final Substring.RepeatingPattern BEFORE =
+      Substring.before(Substring.first(',')).repeatedly();
+  private static final Substring.Pattern AFTER = Substring.after(Substring.last(','));
+  private static final Substring.RepeatingPattern WORD = Substring.word("needle").repeatedly();
+  private static final Substring.RepeatingPattern CONSECUTIVE =
+      Substring.consecutive(CharPredicate.range('0', '9')).repeatedly();
+  private static final Substring.RepeatingPattern SPANNING_IN_ORDER =
+      Substring.spanningInOrder("key", "=", ",").repeatedly();
+  private static final Substring.RepeatingPattern IMMEDIATELY_BETWEEN =
+      Substring.first("needle").immediatelyBetween("(", " ").repeatedly();
+  private static final Substring.RepeatingPattern SEPARATED_BY =
+      Substring.first("needle").separatedBy(CharPredicate.WORD.not()).repeatedly();
+  private static final Substring.RepeatingPattern COMMA = Substring.first(',').repeatedly();
+  private static final Substring.RepeatingPattern NEEDLE = Substring.first("needle").repeatedly();
+  private static final Splitter GUAVA_COMMA = Splitter.on(',');
+  private static final Splitter GUAVA_COMMA_TRIMMED = Splitter.on(',').trimResults();
+
+  @Param({"1024", "65536", "1048576"})
+  int size;
+
+  /** Roughly how many chars apart the hits are. */
+  @Param({"32", "256", "4096"})
+  int spacing;
+
+  private String input;
+
+  @Setup
+  public void setUp() {
+    StringBuilder builder = new StringBuilder(size + spacing).append(HEAD);
+    int recordLength = Math.min(spacing, size / 2);
+    for (int i = 0; builder.length() < size - TAIL.length(); i++) {
+      int recordStart = builder.length();
+      builder.append("key").append(i).append(" = (needle ").append(i).append(")");
+      while (builder.length() - recordStart < recordLength - 2) {
+        builder.append(" lorem");
+      }
+      builder.append(", ");
+    }
+    input = builder.append(TAIL).toString();
+  }
+
+  @Benchmark
+  public int stringIndexOf() {
+    return input.indexOf(TAIL);
+  }
+
+  @Benchmark
+  public int first() {
+    return FIRST.in(input).get().index();
+  }
+
+  @Benchmark
+  public int stringLastIndexOf() {
+    return input.lastIndexOf(HEAD);
+  }
+
+  @Benchmark
+  public int last() {
+    return LAST.in(input).get().index();
+  }
+
+  @Benchmark
+  public long between() {
+    return BETWEEN.match(input).count();
+  }
+
+  @Benchmark
+  public long before() {
+    return BEFORE.match(input).count();
+  }
+
+  @Benchmark
+  public int after() {
+    return AFTER.in(input).get().length();
+  }
+
+  @Benchmark
+  public long word() {
+    return WORD.match(input).count();
+  }
+
+  @Benchmark
+  public long consecutive() {
+    return CONSECUTIVE.match(input).count();
+  }
+
+  @Benchmark
+  public long spanningInOrder() {
+    return SPANNING_IN_ORDER.match(input).count();
+  }
+
+  @Benchmark
+  public long immediatelyBetween() {
+    return IMMEDIATELY_BETWEEN.match(input).count();
+  }
+
+  @Benchmark
+  public long separatedBy() {
+    return SEPARATED_BY.match(input).count();
+  }
+
+  @Benchmark
+  public int stringSplit() {
+    return input.split(",").length;
+  }
+
+  @Benchmark
+  public int guavaSplitter() {
+    return Iterables.size(GUAVA_COMMA.split(input));
+  }
+
+  @Benchmark
+  public long split() {
+    return COMMA.split(input).count();
+  }
+
+  @Benchmark
+  public int guavaSplitterTrimResults() {
+    return Iterables.size(GUAVA_COMMA_TRIMMED.split(input));
+  }
+
+  @Benchmark
+  public long splitThenTrim() {
+    return COMMA.splitThenTrim(input).count();
+  }
+
+  @Benchmark
+  public String stringReplace() {
+    return input.replace("needle", "pin");
+  }
+
+  @Benchmark
+  public String replaceAllFrom() {
+    return NEEDLE.replaceAllFrom(input, m -> "pin");
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(SubstringBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -25,10 +25,10 @@ import static java.util.Objects.requireNonNull;
 public interface CharPredicate {
 
   /** Equivalent to the {@code [a-zA-Z]} character class. */
-  static CharPredicate ALPHA = range('a', 'z').orRange('A', 'Z');
+  static CharPredicate ALPHA = range('a', 'z').orRange('A', 'Z').precompute();
 
   /** Equivalent to the {@code [a-zA-Z0-9_]} character class. */
-  static CharPredicate WORD = ALPHA .orRange('0', '9').or('_');
+  static CharPredicate WORD = ALPHA.orRange('0', '9').or('_').precompute();
 
   /** Corresponds to the ASCII characters. */
   static CharPredicate ASCII = new CharPredicate() {
@@ -144,6 +144,59 @@ public interface CharPredicate {
     return or(range(from, to));
   }
 
+  /**
+   * Returns an equivalent {@link CharPredicate} that evaluates this predicate against every
+   * character up front, so that each subsequent {@link #test} is a single table lookup.
+   *
+   * <p>Useful for predicates composed through chains of {@link #or}, {@link #and} and {@link
+   * #orRange} that are used to scan long input, for example with {@link Substring#consecutive}.
+   * Precomputing evaluates this predicate 64K times, so it only pays off if the returned predicate
+   * is reused. This predicate must be stateless.
+   *
+   * @since 6.2
+   */
+  default CharPredicate precompute() {
+    CharPredicate me = this;
+    long[] bits = new long[(Character.MAX_VALUE + 1) / 64];
+    boolean asciiOnly = true;
+    for (int c = 0; c <= Character.MAX_VALUE; c++) {
+      if (test((char) c)) {
+        bits[c / 64] |= 1L << c;
+        asciiOnly &= c <= '\u007f';
+      }
+    }
+    if (asciiOnly) {
+      long low = bits[0];
+      long high = bits[1];
+      return new CharPredicate() {
+        @Override public boolean test(char c) {
+          return c < 64 ? (low & (1L << c)) != 0 : c < 128 && (high & (1L << c)) != 0;
+        }
+
+        @Override public CharPredicate precompute() {
+          return this;
+        }
+
+        @Override public String toString() {
+          return me.toString();
+        }
+      };
+    }
+    return new CharPredicate() {
+      @Override public boolean test(char c) {
+        return (bits[c / 64] & (1L << c)) != 0;
+      }
+
+      @Override public CharPredicate precompute() {
+        return this;
+      }
+
+      @Override public String toString() {
+        return me.toString();
+      }
+    };
+  }
+
   /** Returns the negation of this {@code CharPredicate}. */
   default CharPredicate not() {
     CharPredicate me = this;
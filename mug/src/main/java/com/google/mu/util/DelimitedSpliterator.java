@@ -0,0 +1,85 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Splits a char sequence around the matches of a delimiter {@link Substring.Pattern}. Supports
+ * {@link #trySplit} by searching for the first delimiter after the midpoint, which requires the
+ * delimiter pattern to {@link Substring.Pattern#canMatchFromAnyIndex match from any index}.
+ */
+final class DelimitedSpliterator implements Spliterator<Substring.Match> {
+  /** Ranges shorter than this aren't worth splitting. */
+  private static final int MIN_SPLIT_LENGTH = 4096;
+
+  private final Substring.Pattern delimiter;
+  private final CharSequence input;
+  private final int end;
+
+  /** Start of the next piece, or -1 if all pieces have been emitted. */
+  private int next;
+
+  DelimitedSpliterator(Substring.Pattern delimiter, CharSequence input) {
+    this(delimiter, input, 0, input.length());
+  }
+
+  private DelimitedSpliterator(Substring.Pattern delimiter, CharSequence input, int from, int end) {
+    this.delimiter = requireNonNull(delimiter);
+    this.input = requireNonNull(input);
+    this.next = from;
+    this.end = end;
+  }
+
+  @Override public boolean tryAdvance(Consumer<? super Substring.Match> action) {
+    if (next < 0) {
+      return false;
+    }
+    Substring.Match match = delimiter.match(input, next);
+    if (match != null && match.index() < end) {
+      action.accept(Substring.Match.nonBacktrackable(input, next, match.index() - next));
+      next = match.endIndex();
+    } else {
+      action.accept(Substring.Match.nonBacktrackable(input, next, end - next));
+      next = -1;
+    }
+    return true;
+  }
+
+  @Override public Spliterator<Substring.Match> trySplit() {
+    if (next < 0 || end - next < MIN_SPLIT_LENGTH) {
+      return null;
+    }
+    Substring.Match match = delimiter.match(input, next + (end - next) / 2);
+    if (match == null || match.index() >= end) {
+      return null;
+    }
+    Spliterator<Substring.Match> prefix =
+        new DelimitedSpliterator(delimiter, input, next, match.index());
+    next = match.endIndex();
+    return prefix;
+  }
+
+  @Override public long estimateSize() {
+    return next < 0 ? 0 : end - next + 1;
+  }
+
+  @Override public int characteristics() {
+    return Spliterator.NONNULL | Spliterator.ORDERED;
+  }
+}
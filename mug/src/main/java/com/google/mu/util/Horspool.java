@@ -0,0 +1,86 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import java.util.Arrays;
+
+/**
+ * Boyer-Moore-Horspool search for a literal string. Compared to the naive search, a mismatch can
+ * skip up to the length of the literal, which pays off for long literals.
+ *
+ * <p>The skip tables are indexed by the low byte of the chars, so that they stay small for any
+ * literal. Chars sharing the same low byte only result in shorter (but still correct) skips.
+ */
+final class Horspool {
+  private final String literal;
+
+  /** Distance from the last occurrence of a char (excluding the last char) to the literal end. */
+  private final int[] forwardSkips = new int[256];
+
+  /** Distance from the literal start to the first occurrence of a char (excluding the first). */
+  private final int[] backwardSkips = new int[256];
+
+  Horspool(String literal) {
+    int length = literal.length();
+    if (length == 0) {
+      throw new IllegalArgumentException("Literal must not be empty.");
+    }
+    this.literal = literal;
+    Arrays.fill(forwardSkips, length);
+    for (int i = 0; i < length - 1; i++) {
+      forwardSkips[literal.charAt(i) & 0xFF] = length - 1 - i;
+    }
+    Arrays.fill(backwardSkips, length);
+    for (int i = length - 1; i > 0; i--) {
+      backwardSkips[literal.charAt(i) & 0xFF] = i;
+    }
+  }
+
+  /** Returns the index of the first occurrence at or after {@code fromIndex}, or -1. */
+  int indexOf(CharSequence input, int fromIndex) {
+    int last = literal.length() - 1;
+    char lastChar = literal.charAt(last);
+    for (int i = Math.max(0, fromIndex), end = input.length() - last; i < end; ) {
+      char c = input.charAt(i + last);
+      if (c == lastChar && regionMatches(input, i, 0, last)) {
+        return i;
+      }
+      i += forwardSkips[c & 0xFF];
+    }
+    return -1;
+  }
+
+  /** Returns the index of the last occurrence at or before {@code fromIndex}, or -1. */
+  int lastIndexOf(CharSequence input, int fromIndex) {
+    char firstChar = literal.charAt(0);
+    for (int i = Math.min(fromIndex, input.length() - literal.length()); i >= 0; ) {
+      char c = input.charAt(i);
+      if (c == firstChar && regionMatches(input, i + 1, 1, literal.length() - 1)) {
+        return i;
+      }
+      i -= backwardSkips[c & 0xFF];
+    }
+    return -1;
+  }
+
+  private boolean regionMatches(CharSequence input, int index, int from, int length) {
+    for (int i = 0; i < length; i++) {
+      if (input.charAt(index + i) != literal.charAt(from + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,174 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Repeatedly applies a {@link Substring.Pattern} against input that arrives in chunks, retaining
+ * only the tail of the input that may still be needed by subsequent matches.
+ *
+ * <p>A match is only reported once the pattern's {@code lookahead()} characters following it have
+ * been received (or the end of input is reached), so that matches aren't reported prematurely.
+ * Patterns with negative {@code lookahead()} only report matches at the end of input. Up to {@code
+ * lookbehind} characters before the next scanning position are retained for lookbehind.
+ *
+ * <p>To keep the total work linear when matches are far apart, the input isn't rescanned upon
+ * every chunk. A failed scan resumes from the pattern's {@code resumeIndex()}, and the input
+ * before it is discarded. Patterns with a known {@code incrementalMatchLength()} are rescanned
+ * upon every chunk; others are only rescanned after the tail since the resume index has doubled
+ * in size, or after the characters needed to confirm a pending match have been received.
+ */
+final class IncrementalMatcher {
+  private final Substring.Pattern pattern;
+  private final int lookahead;
+  private final int lookbehind;
+  private final int maxMatchLength;
+  private final boolean retainUnmatched;
+  private final StringBuilder buffer = new StringBuilder();
+  private int nextIndex = 0;
+  private int unmatchedIndex = 0;
+
+  /** No match starts before this index, as determined by the last failed scan. */
+  private int resumeIndex = 0;
+
+  /** Don't rescan until the buffer has grown to this length, unless input has ended. */
+  private int rescanLength = 0;
+
+  private boolean endOfInput = false;
+
+  /**
+   * @param retainUnmatched whether to retain the characters between matches, as needed by {@link
+   *     #remaining} and {@link #unmatchedIndex}
+   */
+  IncrementalMatcher(Substring.Pattern pattern, int lookbehind, boolean retainUnmatched) {
+    this.pattern = requireNonNull(pattern);
+    this.lookahead = pattern.lookahead();
+    this.lookbehind = lookbehind;
+    this.maxMatchLength = pattern.incrementalMatchLength();
+    this.retainUnmatched = retainUnmatched;
+  }
+
+  /** Appends {@code chunk} to the input. */
+  void append(CharSequence chunk) {
+    checkNotEnded();
+    compact();
+    buffer.append(chunk);
+  }
+
+  /** Appends {@code length} chars from {@code chunk} to the input. */
+  void append(char[] chunk, int length) {
+    checkNotEnded();
+    compact();
+    buffer.append(chunk, 0, length);
+  }
+
+  /** Signals that there will be no more input. */
+  void end() {
+    endOfInput = true;
+  }
+
+  boolean ended() {
+    return endOfInput;
+  }
+
+  /** Returns the number of characters currently buffered. */
+  int buffered() {
+    return buffer.length();
+  }
+
+  /**
+   * Returns the index in the current buffer immediately after the last reported match, or where
+   * the retained input starts if no match has been reported. Only valid until the next call to
+   * {@link #append}.
+   */
+  int unmatchedIndex() {
+    return unmatchedIndex;
+  }
+
+  /** Returns the characters received after the last reported match. */
+  String remaining() {
+    return buffer.substring(Math.min(unmatchedIndex, buffer.length()));
+  }
+
+  /**
+   * Returns the next match, or null if no match can be determined with the input so far. The
+   * returned {@code Match} is a view of the internal buffer and is only valid until the next call
+   * to {@link #append}.
+   */
+  Substring.Match next() {
+    if (nextIndex > buffer.length()) {
+      return null;
+    }
+    if (!endOfInput && lookahead < 0) {
+      return null; // Matches can't be determined until the end of input.
+    }
+    if (!endOfInput && buffer.length() < rescanLength) {
+      return null; // Wait for more input before rescanning.
+    }
+    int scanIndex = Math.max(nextIndex, resumeIndex);
+    Substring.Match match = pattern.match(buffer, scanIndex);
+    if (match == null) {
+      resumeIndex = pattern.resumeIndex(buffer, scanIndex);
+      if (maxMatchLength <= 0) {
+        deferRescan();
+      }
+      return null;
+    }
+    int endIndex = match.endIndex();
+    if (!endOfInput && buffer.length() - endIndex < lookahead) {
+      if (endIndex < buffer.length() || maxMatchLength >= 0) {
+        rescanLength = endIndex + lookahead;
+      } else { // The match may still grow.
+        deferRescan();
+      }
+      return null; // Wait for more input to be sure.
+    }
+    int repetitionStartIndex = match.repetitionStartIndex();
+    if (endOfInput && endIndex == buffer.length()) { // We've consumed the entire input.
+      nextIndex = Integer.MAX_VALUE;
+    } else if (repetitionStartIndex > nextIndex) {
+      nextIndex = repetitionStartIndex;
+    } else {
+      throw new IllegalStateException("Infinite loop detected at " + repetitionStartIndex);
+    }
+    unmatchedIndex = endIndex;
+    return match;
+  }
+
+  private void deferRescan() {
+    rescanLength = buffer.length() + (buffer.length() - Math.max(nextIndex, resumeIndex));
+  }
+
+  /** Discards the characters no longer needed, if they take up at least half of the buffer. */
+  private void compact() {
+    int scanIndex = Math.max(nextIndex, resumeIndex);
+    int retainIndex = retainUnmatched ? Math.min(scanIndex, unmatchedIndex) : scanIndex;
+    int discard = Math.min(retainIndex, buffer.length()) - lookbehind;
+    if (discard > 0 && discard >= buffer.length() / 2) {
+      buffer.delete(0, discard);
+      nextIndex -= discard;
+      unmatchedIndex -= discard;
+      resumeIndex -= discard;
+      rescanLength -= discard;
+    }
+  }
+
+  private void checkNotEnded() {
+    if (endOfInput) {
+      throw new IllegalStateException("Input already ended.");
+    }
+  }
+}
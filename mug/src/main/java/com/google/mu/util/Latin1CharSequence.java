@@ -0,0 +1,111 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link CharSequence} view of the bytes in a {@link ByteBuffer}, with each byte interpreted as
+ * an ISO-8859-1 char. No bytes are copied unless {@link #toString} is called.
+ *
+ * <p>Because no byte of a multi-byte UTF-8 sequence is in the ASCII range, ASCII chars in this
+ * view are always exactly the ASCII chars of the UTF-8 encoded text.
+ */
+final class Latin1CharSequence implements CharSequence {
+  private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+  private static final long EACH_BYTE = 0x0101010101010101L;
+
+  private final ByteBuffer bytes;
+  private final int offset;
+  private final int length;
+
+  /** Views the bytes between {@code bytes.position()} and {@code bytes.limit()}. */
+  Latin1CharSequence(ByteBuffer bytes) {
+    this(bytes, bytes.position(), bytes.remaining());
+  }
+
+  private Latin1CharSequence(ByteBuffer bytes, int offset, int length) {
+    this.bytes = requireNonNull(bytes);
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /** Returns a slice of the underlying buffer from {@code index} with {@code length} bytes. */
+  ByteBuffer slice(int index, int length) {
+    ByteBuffer slice = bytes.duplicate();
+    slice.limit(offset + index + length);
+    slice.position(offset + index);
+    return slice.slice();
+  }
+
+  /**
+   * Returns the index of the first {@code ch} at or after {@code fromIndex}, or -1 if not found.
+   *
+   * <p>Compares 8 bytes at a time using SWAR ("SIMD within a register") arithmetic.
+   */
+  int indexOf(char ch, int fromIndex) {
+    if (ch > 0xFF) {
+      return -1;
+    }
+    boolean bigEndian = bytes.order() == ByteOrder.BIG_ENDIAN;
+    long pattern = ch * EACH_BYTE;
+    int i = Math.max(0, fromIndex);
+    for (; i <= length - 8; i += 8) {
+      long word = bytes.getLong(offset + i) ^ pattern;
+      // The high bit of each byte is set iff the byte is zero, without carrying across bytes.
+      long zeros = ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+      if (zeros != 0) {
+        return i
+            + (bigEndian ? Long.numberOfLeadingZeros(zeros) : Long.numberOfTrailingZeros(zeros))
+                / 8;
+      }
+    }
+    for (; i < length; i++) {
+      if (bytes.get(offset + i) == (byte) ch) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override public int length() {
+    return length;
+  }
+
+  @Override public char charAt(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("index (" + index + ") out of range [0, " + length + ")");
+    }
+    return (char) (bytes.get(offset + index) & 0xFF);
+  }
+
+  @Override public CharSequence subSequence(int start, int end) {
+    if (start < 0 || start > end || end > length) {
+      throw new IndexOutOfBoundsException(
+          "[" + start + ", " + end + ") out of range [0, " + length + "]");
+    }
+    return new Latin1CharSequence(bytes, offset + start, end - start);
+  }
+
+  @Override public String toString() {
+    byte[] array = new byte[length];
+    slice(0, length).get(array);
+    return new String(array, StandardCharsets.ISO_8859_1);
+  }
+}
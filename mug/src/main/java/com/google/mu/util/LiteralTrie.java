@@ -0,0 +1,246 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * A trie of literal strings, with Aho-Corasick failure links so that all the literals can be
+ * searched for in a single left-to-right pass over the input.
+ *
+ * <p>Literals are identified by their index in the list passed to the constructor. When more than
+ * one literal match at the same index, the one with the smallest index wins.
+ */
+final class LiteralTrie {
+  private static final int NOT_FOUND = -1;
+
+  private final Node root = new Node(0);
+  private final int maxLength;
+
+  /** Index of the empty literal if present. */
+  private final int emptyLiteral;
+
+  LiteralTrie(List<String> literals) {
+    int max = 0;
+    int empty = NOT_FOUND;
+    for (int i = 0; i < literals.size(); i++) {
+      String literal = requireNonNull(literals.get(i));
+      max = Math.max(max, literal.length());
+      if (literal.isEmpty()) {
+        if (empty == NOT_FOUND) {
+          empty = i;
+        }
+        continue;
+      }
+      Node node = root;
+      for (int c = 0; c < literal.length(); c++) {
+        node = node.addChild(literal.charAt(c));
+      }
+      if (node.literal == NOT_FOUND) {
+        node.literal = i;
+      }
+    }
+    this.maxLength = max;
+    this.emptyLiteral = empty;
+    linkFailures();
+  }
+
+  /**
+   * Finds the leftmost occurrence of any literal in {@code input} starting from {@code fromIndex}.
+   * Ties are broken by the literal order. Returns null if not found.
+   */
+  Substring.Match find(CharSequence input, int fromIndex) {
+    int[] endIndex = new int[1];
+    int start = locate(input, fromIndex, endIndex);
+    return start == NOT_FOUND
+        ? null
+        : Substring.Match.backtrackable(1, input, start, endIndex[0] - start);
+  }
+
+  /**
+   * Like {@link #find}, but returns the start index of the occurrence (or -1 if not found), and
+   * stores its end index in {@code endIndex[0]}.
+   */
+  int locate(CharSequence input, int fromIndex, int[] endIndex) {
+    int bestStart = NOT_FOUND;
+    int bestLength = 0;
+    int bestLiteral = NOT_FOUND;
+    if (emptyLiteral != NOT_FOUND) {
+      bestStart = fromIndex;
+      bestLiteral = emptyLiteral;
+    }
+    Node state = root;
+    for (int i = fromIndex; i < input.length(); i++) {
+      // Any match ending at i starts after bestStart.
+      if (bestStart != NOT_FOUND && i - maxLength >= bestStart) {
+        break;
+      }
+      state = state.transition(input.charAt(i));
+      for (Node out = state.literal == NOT_FOUND ? state.output : state;
+          out != null;
+          out = out.output) {
+        int start = i + 1 - out.depth;
+        if (bestStart == NOT_FOUND
+            || start < bestStart
+            || (start == bestStart && out.literal < bestLiteral)) {
+          bestStart = start;
+          bestLength = out.depth;
+          bestLiteral = out.literal;
+        }
+      }
+    }
+    endIndex[0] = bestStart + bestLength;
+    return bestStart;
+  }
+
+  /**
+   * Returns the length of the longest literal that {@code input} starts with at {@code fromIndex},
+   * or -1 if none. Only the chars of {@code input} that can still extend a literal are inspected.
+   */
+  int longestPrefixAt(CharSequence input, int fromIndex) {
+    int longest = emptyLiteral == NOT_FOUND ? NOT_FOUND : 0;
+    Node node = root;
+    for (int i = fromIndex; i < input.length(); i++) {
+      node = node.child(input.charAt(i));
+      if (node == null) {
+        break;
+      }
+      if (node.literal != NOT_FOUND) {
+        longest = node.depth;
+      }
+    }
+    return longest;
+  }
+
+  /**
+   * For a trie built from reversed literals, returns the length of the longest literal that {@code
+   * input} ends with, without going before {@code fromIndex}; or -1 if none.
+   */
+  int longestSuffixFrom(CharSequence input, int fromIndex) {
+    int longest = emptyLiteral == NOT_FOUND ? NOT_FOUND : 0;
+    Node node = root;
+    for (int i = input.length() - 1; i >= fromIndex; i--) {
+      node = node.child(input.charAt(i));
+      if (node == null) {
+        break;
+      }
+      if (node.literal != NOT_FOUND) {
+        longest = node.depth;
+      }
+    }
+    return longest;
+  }
+
+  private void linkFailures() {
+    Queue<Node> queue = new ArrayDeque<>();
+    for (Node child : root.children) {
+      child.fail = root;
+      queue.add(child);
+    }
+    root.fail = root;
+    for (Node node = queue.poll(); node != null; node = queue.poll()) {
+      for (int i = 0; i < node.keys.length; i++) {
+        char c = node.keys[i];
+        Node child = node.children[i];
+        Node fallback = node.fail;
+        while (fallback != root && fallback.child(c) == null) {
+          fallback = fallback.fail;
+        }
+        Node failTo = fallback.child(c);
+        child.fail = failTo == null ? root : failTo;
+        child.output = child.fail.literal == NOT_FOUND ? child.fail.output : child.fail;
+        queue.add(child);
+      }
+    }
+    root.freeze();
+  }
+
+  private final class Node {
+    final int depth;
+    char[] keys = new char[0];
+    Node[] children = new Node[0];
+    Node fail;
+
+    /** The next node along the failure chain that ends a literal. */
+    Node output;
+
+    /** The smallest index of the literal ending at this node. */
+    int literal = NOT_FOUND;
+
+    /** Direct lookup for ASCII chars, only populated for the root node. */
+    private Node[] ascii;
+
+    Node(int depth) {
+      this.depth = depth;
+    }
+
+    Node addChild(char c) {
+      Node child = child(c);
+      if (child == null) {
+        int insertAt = -Arrays.binarySearch(keys, c) - 1;
+        keys = insert(keys, insertAt, c);
+        children = insert(children, insertAt, child = new Node(depth + 1));
+      }
+      return child;
+    }
+
+    Node child(char c) {
+      if (ascii != null && c < 128) {
+        return ascii[c];
+      }
+      int index = Arrays.binarySearch(keys, c);
+      return index < 0 ? null : children[index];
+    }
+
+    Node transition(char c) {
+      for (Node node = this; ; node = node.fail) {
+        Node next = node.child(c);
+        if (next != null) {
+          return next;
+        }
+        if (node == root) {
+          return root;
+        }
+      }
+    }
+
+    void freeze() {
+      ascii = new Node[128];
+      for (int i = 0; i < keys.length && keys[i] < 128; i++) {
+        ascii[keys[i]] = children[i];
+      }
+    }
+  }
+
+  private static char[] insert(char[] array, int index, char value) {
+    char[] result = new char[array.length + 1];
+    System.arraycopy(array, 0, result, 0, index);
+    result[index] = value;
+    System.arraycopy(array, index, result, index + 1, array.length - index);
+    return result;
+  }
+
+  private static <T> T[] insert(T[] array, int index, T value) {
+    T[] result = Arrays.copyOf(array, array.length + 1);
+    result[index] = value;
+    System.arraycopy(array, index, result, index + 1, array.length - index);
+    return result;
+  }
+}
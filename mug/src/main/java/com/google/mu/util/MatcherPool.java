@@ -0,0 +1,52 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches one {@link Matcher} per thread for a regex pattern, so that repeatedly matching against
+ * short strings doesn't allocate a new {@code Matcher} each time.
+ *
+ * <p>The matcher is taken out of the cache while in use, so reentrant calls on the same thread get
+ * a fresh matcher instead of clobbering one in use. Upon {@link #release}, the matcher is reset
+ * to the empty string so that the input isn't retained.
+ */
+final class MatcherPool {
+  private final Pattern regex;
+  private final ThreadLocal<Matcher> cached = new ThreadLocal<>();
+
+  MatcherPool(Pattern regex) {
+    this.regex = requireNonNull(regex);
+  }
+
+  /** Returns a matcher for {@code input}. Call {@link #release} when done. */
+  Matcher acquire(CharSequence input) {
+    Matcher matcher = cached.get();
+    if (matcher == null) {
+      return regex.matcher(input);
+    }
+    cached.set(null);
+    return matcher.reset(input);
+  }
+
+  /** Returns {@code matcher} to the pool. It must not be used afterwards. */
+  void release(Matcher matcher) {
+    cached.set(matcher.reset(""));
+  }
+}
@@ -0,0 +1,194 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Recognizes regex patterns that don't need the regex engine: literals, alternations of literals
+ * and single-char classes such as {@code [a-z0-9_]}, so that they can be matched with the native
+ * {@link Substring} patterns instead.
+ *
+ * <p>Only patterns whose semantics are exactly equivalent are recognized. For example, negated
+ * char classes aren't, because the regex engine would match a surrogate pair as a single code
+ * point.
+ */
+final class SimpleRegex {
+  private static final String META_CHARS = "^$.|?*+()[]{}";
+
+  /**
+   * Returns the equivalent {@link Substring.Pattern} of {@code regex}, or null if {@code regex}
+   * isn't simple enough.
+   */
+  static Substring.Pattern compile(java.util.regex.Pattern regex) {
+    String pattern = regex.pattern();
+    if (hasSurrogate(pattern)) {
+      return null;
+    }
+    if (regex.flags() == java.util.regex.Pattern.LITERAL) {
+      return pattern.isEmpty() ? null : Substring.first(pattern);
+    }
+    if (regex.flags() != 0) {
+      return null;
+    }
+    CharPredicate charClass = charClass(pattern);
+    if (charClass != null) {
+      return Substring.first(charClass);
+    }
+    List<String> literals = literals(pattern);
+    if (literals == null) {
+      return null;
+    }
+    return literals.size() == 1 ? Substring.first(literals.get(0)) : Substring.firstOf(literals);
+  }
+
+  /** Parses {@code pattern} as {@code foo|bar|...}, or returns null if it's not. */
+  private static List<String> literals(String pattern) {
+    List<String> literals = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    for (int i = 0; i < pattern.length(); ) {
+      char c = pattern.charAt(i);
+      if (c == '\\') {
+        if (i + 1 >= pattern.length()) {
+          return null;
+        }
+        char escaped = pattern.charAt(i + 1);
+        if (escaped == 'Q') {
+          int end = pattern.indexOf("\\E", i + 2);
+          literal.append(pattern, i + 2, end < 0 ? pattern.length() : end);
+          i = end < 0 ? pattern.length() : end + 2;
+          continue;
+        }
+        if (Character.isLetterOrDigit(escaped)) {
+          return null;
+        }
+        literal.append(escaped);
+        i += 2;
+        continue;
+      }
+      if (c == '|') {
+        if (literal.length() == 0) {
+          return null;
+        }
+        literals.add(literal.toString());
+        literal.setLength(0);
+      } else if (META_CHARS.indexOf(c) >= 0) {
+        return null;
+      } else {
+        literal.append(c);
+      }
+      i++;
+    }
+    if (literal.length() == 0) {
+      return null;
+    }
+    literals.add(literal.toString());
+    return literals;
+  }
+
+  /** Parses {@code pattern} as a single-char class like {@code [a-z_]}, or returns null. */
+  private static CharPredicate charClass(String pattern) {
+    BitSet chars = new BitSet();
+    if (pattern.length() == 2 && addEscapedClass(pattern.charAt(1), chars)) {
+      return pattern.charAt(0) == '\\' ? matching(chars, pattern) : null;
+    }
+    if (pattern.length() < 3
+        || pattern.charAt(0) != '['
+        || pattern.charAt(pattern.length() - 1) != ']'
+        || pattern.charAt(1) == '^') {
+      return null;
+    }
+    for (int i = 1, end = pattern.length() - 1; i < end; ) {
+      char from = pattern.charAt(i);
+      if (from == '[' || from == ']' || (from == '&' && pattern.charAt(i + 1) == '&')) {
+        return null;
+      }
+      if (from == '\\') {
+        char escaped = pattern.charAt(i + 1);
+        i += 2;
+        if (addEscapedClass(escaped, chars)) {
+          continue;
+        }
+        if (Character.isLetterOrDigit(escaped)) {
+          return null;
+        }
+        from = escaped;
+      } else {
+        i++;
+      }
+      if (i + 1 < end && pattern.charAt(i) == '-') {
+        char to = pattern.charAt(i + 1);
+        if (to == '[' || to == ']' || to == '\\' || to < from) {
+          return null;
+        }
+        chars.set(from, to + 1);
+        i += 2;
+      } else {
+        chars.set(from);
+      }
+    }
+    int surrogate = chars.nextSetBit(Character.MIN_SURROGATE);
+    if (surrogate >= 0 && surrogate <= Character.MAX_SURROGATE) {
+      return null; // The regex engine would match surrogate pairs as single code points.
+    }
+    return matching(chars, pattern);
+  }
+
+  /** Adds the chars of {@code \d}, {@code \w} or {@code \s} to {@code chars}. */
+  private static boolean addEscapedClass(char escaped, BitSet chars) {
+    switch (escaped) {
+      case 'd':
+        chars.set('0', '9' + 1);
+        return true;
+      case 'w':
+        chars.set('a', 'z' + 1);
+        chars.set('A', 'Z' + 1);
+        chars.set('0', '9' + 1);
+        chars.set('_');
+        return true;
+      case 's':
+        chars.set(' ');
+        chars.set('\t', '\r' + 1); // \t, \n, \u000B, \f, \r
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static CharPredicate matching(BitSet chars, String name) {
+    return new CharPredicate() {
+      @Override public boolean test(char c) {
+        return chars.get(c);
+      }
+
+      @Override public String toString() {
+        return name;
+      }
+    };
+  }
+
+  private static boolean hasSurrogate(String pattern) {
+    for (int i = 0; i < pattern.length(); i++) {
+      if (Character.isSurrogate(pattern.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private SimpleRegex() {}
+}
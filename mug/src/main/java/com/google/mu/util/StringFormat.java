@@ -0,0 +1,252 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.google.mu.function.Quarternary;
+import com.google.mu.function.Quinary;
+import com.google.mu.function.Senary;
+import com.google.mu.function.Ternary;
+
+/**
+ * A string template with placeholders in the form of {@code "{name}"}, which can be used to parse
+ * the placeholder values out of strings that conform to the template. For example:
+ *
+ * <pre>{@code
+ * private static final StringFormat LOG_FILE = new StringFormat("{user}-{date}.log");
+ *
+ * Optional<LogFile> logFile =
+ *     LOG_FILE.parse(fileName, (user, date) -> new LogFile(user, LocalDate.parse(date)));
+ * }</pre>
+ *
+ * <p>The template is compiled once into a prefix, a sequence of literal searches and a suffix.
+ * Parsing then extracts all placeholder values in a single left-to-right pass over the input, with
+ * each placeholder matching up to the first occurrence of the literal that follows it. Compared to
+ * chaining {@link Substring#before}, {@link Substring#after} and {@link Substring#between}
+ * patterns, the input isn't rescanned and no intermediary strings are created for each field.
+ *
+ * <p>The placeholder names are only for readability. Values are passed to the callback function
+ * in the order the placeholders appear in the template.
+ *
+ * <p>The {@code parse()} overloads differ only in the number of parameters the callback takes.
+ * Lambdas pick the overload by their parameter count, but a method reference to an overloaded
+ * method, such as {@code Integer::parseInt}, is inexact and can match more than one overload,
+ * failing to compile as ambiguous. Use a lambda instead: {@code parse(input, id ->
+ * Integer.parseInt(id))}.
+ *
+ * @since 6.2
+ */
+public final class StringFormat {
+  private static final Substring.RepeatingPattern PLACEHOLDERS =
+      Substring.spanningInOrder("{", "}").repeatedly();
+
+  private final String format;
+  private final Substring.Pattern prefix;
+  private final List<Substring.Pattern> delimiters;
+  private final Substring.Pattern suffix;
+  private final int numPlaceholders;
+
+  /**
+   * Constructs a StringFormat with placeholders in the syntax of {@code "{foo}"}.
+   *
+   * @throws IllegalArgumentException if two placeholders are next to each other without any literal
+   *     text in between, because the boundary between the two values would be ambiguous
+   */
+  public StringFormat(String format) {
+    this.format = format;
+    List<String> literals =
+        PLACEHOLDERS.split(format).map(Substring.Match::toString).collect(toList());
+    this.numPlaceholders = literals.size() - 1;
+    List<String> betweenPlaceholders = literals.subList(1, Math.max(1, numPlaceholders));
+    if (betweenPlaceholders.contains("")) {
+      throw new IllegalArgumentException(
+          "Placeholders must be separated by literal text: " + format);
+    }
+    this.prefix = Substring.prefix(literals.get(0));
+    this.delimiters = betweenPlaceholders.stream().map(Substring::first).collect(toList());
+    this.suffix = Substring.suffix(literals.get(numPlaceholders));
+  }
+
+  /**
+   * Parses {@code input} and applies the {@code mapper} function with the single placeholder value
+   * in this string format.
+   *
+   * @return the return value of the {@code mapper} function applied on the extracted placeholder
+   *     value, or empty if {@code input} doesn't match the format
+   * @throws IllegalArgumentException if the format string doesn't have exactly one placeholder
+   * @throws NullPointerException if any parameter is null or {@code mapper} returns null
+   */
+  public <R> Optional<R> parse(CharSequence input, Function<? super String, ? extends R> mapper) {
+    requireNonNull(mapper);
+    int[] bounds = match(input, 1);
+    return bounds == null ? Optional.empty() : Optional.of(mapper.apply(value(input, bounds, 0)));
+  }
+
+  /**
+   * Parses {@code input} and applies {@code mapper} with the two placeholder values in this string
+   * format.
+   *
+   * @return the return value of the {@code mapper} function applied on the extracted placeholder
+   *     values, or empty if {@code input} doesn't match the format
+   * @throws IllegalArgumentException if the format string doesn't have exactly two placeholders
+   * @throws NullPointerException if any parameter is null or {@code mapper} returns null
+   */
+  public <R> Optional<R> parse(
+      CharSequence input, BiFunction<? super String, ? super String, ? extends R> mapper) {
+    requireNonNull(mapper);
+    int[] bounds = match(input, 2);
+    return bounds == null
+        ? Optional.empty()
+        : Optional.of(mapper.apply(value(input, bounds, 0), value(input, bounds, 1)));
+  }
+
+  /**
+   * Parses {@code input} and applies {@code mapper} with the 3 placeholder values in this string
+   * format.
+   *
+   * @return the return value of the {@code mapper} function applied on the extracted placeholder
+   *     values, or empty if {@code input} doesn't match the format
+   * @throws IllegalArgumentException if the format string doesn't have exactly 3 placeholders
+   * @throws NullPointerException if any parameter is null or {@code mapper} returns null
+   */
+  public <R> Optional<R> parse(CharSequence input, Ternary<? super String, ? extends R> mapper) {
+    requireNonNull(mapper);
+    int[] bounds = match(input, 3);
+    return bounds == null
+        ? Optional.empty()
+        : Optional.of(
+            mapper.apply(value(input, bounds, 0), value(input, bounds, 1), value(input, bounds, 2)));
+  }
+
+  /**
+   * Parses {@code input} and applies {@code mapper} with the 4 placeholder values in this string
+   * format.
+   *
+   * @return the return value of the {@code mapper} function applied on the extracted placeholder
+   *     values, or empty if {@code input} doesn't match the format
+   * @throws IllegalArgumentException if the format string doesn't have exactly 4 placeholders
+   * @throws NullPointerException if any parameter is null or {@code mapper} returns null
+   */
+  public <R> Optional<R> parse(
+      CharSequence input, Quarternary<? super String, ? extends R> mapper) {
+    requireNonNull(mapper);
+    int[] bounds = match(input, 4);
+    return bounds == null
+        ? Optional.empty()
+        : Optional.of(
+            mapper.apply(
+                value(input, bounds, 0),
+                value(input, bounds, 1),
+                value(input, bounds, 2),
+                value(input, bounds, 3)));
+  }
+
+  /**
+   * Parses {@code input} and applies {@code mapper} with the 5 placeholder values in this string
+   * format.
+   *
+   * @return the return value of the {@code mapper} function applied on the extracted placeholder
+   *     values, or empty if {@code input} doesn't match the format
+   * @throws IllegalArgumentException if the format string doesn't have exactly 5 placeholders
+   * @throws NullPointerException if any parameter is null or {@code mapper} returns null
+   */
+  public <R> Optional<R> parse(CharSequence input, Quinary<? super String, ? extends R> mapper) {
+    requireNonNull(mapper);
+    int[] bounds = match(input, 5);
+    return bounds == null
+        ? Optional.empty()
+        : Optional.of(
+            mapper.apply(
+                value(input, bounds, 0),
+                value(input, bounds, 1),
+                value(input, bounds, 2),
+                value(input, bounds, 3),
+                value(input, bounds, 4)));
+  }
+
+  /**
+   * Parses {@code input} and applies {@code mapper} with the 6 placeholder values in this string
+   * format.
+   *
+   * @return the return value of the {@code mapper} function applied on the extracted placeholder
+   *     values, or empty if {@code input} doesn't match the format
+   * @throws IllegalArgumentException if the format string doesn't have exactly 6 placeholders
+   * @throws NullPointerException if any parameter is null or {@code mapper} returns null
+   */
+  public <R> Optional<R> parse(CharSequence input, Senary<? super String, ? extends R> mapper) {
+    requireNonNull(mapper);
+    int[] bounds = match(input, 6);
+    return bounds == null
+        ? Optional.empty()
+        : Optional.of(
+            mapper.apply(
+                value(input, bounds, 0),
+                value(input, bounds, 1),
+                value(input, bounds, 2),
+                value(input, bounds, 3),
+                value(input, bounds, 4),
+                value(input, bounds, 5)));
+  }
+
+  /** Returns the string format. */
+  @Override public String toString() {
+    return format;
+  }
+
+  /**
+   * Matches {@code input} against this format and returns the start and end index of each
+   * placeholder value, or null if {@code input} doesn't match.
+   */
+  private int[] match(CharSequence input, int cardinality) {
+    requireNonNull(input);
+    if (numPlaceholders != cardinality) {
+      throw new IllegalArgumentException(
+          format + " has " + numPlaceholders + " placeholders; " + cardinality + " expected.");
+    }
+    Substring.Match head = prefix.match(input, 0);
+    if (head == null) {
+      return null;
+    }
+    int[] bounds = new int[cardinality * 2];
+    int index = head.length();
+    for (int i = 0; i < delimiters.size(); i++) {
+      Substring.Match delimiter = delimiters.get(i).match(input, index);
+      if (delimiter == null) {
+        return null;
+      }
+      bounds[i * 2] = index;
+      bounds[i * 2 + 1] = delimiter.index();
+      index = delimiter.endIndex();
+    }
+    Substring.Match tail = suffix.match(input, index);
+    if (tail == null) {
+      return null;
+    }
+    bounds[bounds.length - 2] = index;
+    bounds[bounds.length - 1] = tail.index();
+    return bounds;
+  }
+
+  private static String value(CharSequence input, int[] bounds, int placeholder) {
+    return input.subSequence(bounds[placeholder * 2], bounds[placeholder * 2 + 1]).toString();
+  }
+}
@@ -16,23 +16,41 @@ package com.google.mu.util;
 
 import static com.google.mu.util.InternalCollectors.toImmutableList;
 import static java.lang.Math.max;
+import static java.util.Arrays.asList;
 import static java.util.Comparator.comparingInt;
 import static java.util.Objects.requireNonNull;
 import static java.util.regex.Pattern.compile;
 import static java.util.regex.Pattern.quote;
 import static java.util.stream.Collectors.collectingAndThen;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
 import java.util.stream.Collector;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.google.mu.util.stream.BiStream;
 import com.google.mu.util.stream.MoreStreams;
@@ -116,9 +134,14 @@ import com.google.mu.util.stream.MoreStreams;
  * @since 2.0
  */
 public final class Substring {
+  private static final int STREAMING_CHUNK_SIZE = 8192;
+
+  /** Literals at least this long are searched with skip tables instead of char by char. */
+  private static final int HORSPOOL_MIN_LENGTH = 16;
+
   /** {@code Pattern} that never matches any substring. */
   public static final Pattern NONE = new Pattern() {
-    @Override Match match(String s, int fromIndex) {
+    @Override Match match(CharSequence s, int fromIndex) {
       requireNonNull(s);
       return null;
     }
@@ -137,7 +160,7 @@ public final class Substring {
    */
   public static final Pattern BEGINNING =
       new Pattern() {
-        @Override Match match(String str, int fromIndex) {
+        @Override Match match(CharSequence str, int fromIndex) {
           return Match.nonBacktrackable(str, fromIndex, 0);
         }
 
@@ -158,7 +181,7 @@ public final class Substring {
    */
   public static final Pattern END =
       new Pattern() {
-        @Override Match match(String str, int fromIndex) {
+        @Override Match match(CharSequence str, int fromIndex) {
           return Match.suffix(str, 0);
         }
 
@@ -216,10 +239,42 @@ public final class Substring {
     if (str.length() == 1) {
       return first(str.charAt(0));
     }
+    Horspool horspool = str.length() >= HORSPOOL_MIN_LENGTH ? new Horspool(str) : null;
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        int index = input.indexOf(str, fromIndex);
-        return index >= fromIndex ? Match.backtrackable(1, input, index, str.length()) : null;
+      @Override Match match(CharSequence input, int fromIndex) {
+        int index = indexIn(input, fromIndex);
+        return index >= 0 ? Match.backtrackable(1, input, index, str.length()) : null;
+      }
+
+      private int indexIn(CharSequence input, int fromIndex) {
+        int index =
+            horspool == null ? indexOf(input, str, fromIndex) : horspool.indexOf(input, fromIndex);
+        return index >= fromIndex ? index : -1;
+      }
+
+      @Override MatchCursor iterate(CharSequence input) {
+        return str.isEmpty()
+            ? super.iterate(input)
+            : iterateByIndex(input, (in, fromIndex, endIndex) -> {
+                int index = indexIn(in, fromIndex);
+                endIndex[0] = index + str.length();
+                return index;
+              });
+      }
+
+      @Override boolean canMatchFromAnyIndex() {
+        // If any prefix of str is also its suffix, an occurrence found from an arbitrary index may
+        // overlap with a preceding occurrence that would have been matched by repetition.
+        for (int len = 1; len < str.length(); len++) {
+          if (str.regionMatches(0, str, str.length() - len, len)) {
+            return false;
+          }
+        }
+        return !str.isEmpty();
+      }
+
+      @Override String literal() {
+        return str;
       }
 
       @Override Pattern lookaround(String lookbehind, String lookahead) {
@@ -242,11 +297,27 @@ public final class Substring {
   /** Returns a {@code Pattern} that matches the first occurrence of {@code character}. */
   public static Pattern first(char character) {
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        int index = input.indexOf(character, fromIndex);
+      @Override Match match(CharSequence input, int fromIndex) {
+        int index = indexOf(input, character, fromIndex);
         return index >= 0 ? Match.backtrackable(1, input, index, 1) : null;
       }
 
+      @Override MatchCursor iterate(CharSequence input) {
+        return iterateByIndex(input, (in, fromIndex, endIndex) -> {
+          int index = indexOf(in, character, fromIndex);
+          endIndex[0] = index + 1;
+          return index;
+        });
+      }
+
+      @Override boolean canMatchFromAnyIndex() {
+        return true;
+      }
+
+      @Override String literal() {
+        return Character.toString(character);
+      }
+
       @Override Pattern lookaround(String lookbehind, String lookahead) {
         // first(lookbehind + char).skip(lookbehind) is more efficient with native String#indexOf().
         return lookbehind.isEmpty()
@@ -268,13 +339,34 @@ public final class Substring {
   public static Pattern first(CharPredicate charMatcher) {
     requireNonNull(charMatcher);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
+      @Override Match match(CharSequence input, int fromIndex) {
+        int index = indexIn(input, fromIndex);
+        return index >= 0 ? Match.backtrackable(1, input, index, 1) : null;
+      }
+
+      private int indexIn(CharSequence input, int fromIndex) {
         for (int i = fromIndex; i < input.length(); i++) {
           if (charMatcher.test(input.charAt(i))) {
-            return Match.backtrackable(1, input, i, 1);
+            return i;
           }
         }
-        return null;
+        return -1;
+      }
+
+      @Override MatchCursor iterate(CharSequence input) {
+        return iterateByIndex(input, (in, fromIndex, endIndex) -> {
+          int index = indexIn(in, fromIndex);
+          endIndex[0] = index + 1;
+          return index;
+        });
+      }
+
+      @Override boolean canMatchFromAnyIndex() {
+        return true;
+      }
+
+      @Override int incrementalMatchLength() {
+        return 1;
       }
 
       @Override public String toString() {
@@ -291,7 +383,7 @@ public final class Substring {
   public static Pattern last(CharPredicate charMatcher) {
     requireNonNull(charMatcher);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
+      @Override Match match(CharSequence input, int fromIndex) {
         for (int i = input.length() - 1; i >= fromIndex; i--) {
           if (charMatcher.test(input.charAt(i))) {
             return Match.nonBacktrackable(input, i, 1);
@@ -315,6 +407,13 @@ public final class Substring {
    *
    * treats the {@code replacement} as a literal string, with no special handling of backslash (\)
    * and dollar sign ($) characters.
+   *
+   * <p>If {@code regexPattern} is a plain literal (like {@code "foo"} or {@code "\\Q1.0\\E"}), an
+   * alternation of literals (like {@code "GET|POST"}), or a single char class (like {@code
+   * "[a-z_]"} or {@code "\\d"}), it's matched natively as if by {@link #first(String)}, {@link
+   * #firstOf(String...)} or {@link #first(CharPredicate)} without going through the regex engine.
+   * The {@link Object#toString} of the returned pattern tells which is used, for example {@code
+   * "firstOf([GET, POST])"} as opposed to {@code "first(\"GE+T\", 0)"}.
    */
   public static Pattern first(java.util.regex.Pattern regexPattern) {
     return first(regexPattern, 0);
@@ -365,7 +464,7 @@ public final class Substring {
   public static Pattern leading(CharPredicate matcher) {
     requireNonNull(matcher);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
+      @Override Match match(CharSequence input, int fromIndex) {
         int len = 0;
         for (int i = fromIndex; i < input.length(); i++, len++) {
           if (!matcher.test(input.charAt(i))) {
@@ -392,7 +491,7 @@ public final class Substring {
   public static Pattern trailing(CharPredicate matcher) {
     requireNonNull(matcher);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
+      @Override Match match(CharSequence input, int fromIndex) {
         int len = 0;
         for (int i = input.length() - 1; i >= fromIndex; i--, len++) {
           if (!matcher.test(input.charAt(i))) {
@@ -427,20 +526,48 @@ public final class Substring {
   public static Pattern consecutive(CharPredicate matcher) {
     requireNonNull(matcher);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        int end = input.length();
-        for (int i = fromIndex; i < end; i++) {
+      @Override Match match(CharSequence input, int fromIndex) {
+        int index = indexIn(input, fromIndex);
+        if (index < 0) {
+          return null;
+        }
+        int len = endOfRun(input, index) - index;
+        return Match.backtrackable(len, input, index, len);
+      }
+
+      private int indexIn(CharSequence input, int fromIndex) {
+        for (int i = fromIndex; i < input.length(); i++) {
           if (matcher.test(input.charAt(i))) {
-            int len = 1;
-            for (int j = i + 1; j < end; j++, len++) {
-              if (!matcher.test(input.charAt(j))) {
-                break;
-              }
-            }
-            return Match.backtrackable(len, input, i, len);
+            return i;
           }
         }
-        return null;
+        return -1;
+      }
+
+      private int endOfRun(CharSequence input, int index) {
+        int end = index + 1;
+        while (end < input.length() && matcher.test(input.charAt(end))) {
+          end++;
+        }
+        return end;
+      }
+
+      @Override MatchCursor iterate(CharSequence input) {
+        return iterateByIndex(input, (in, fromIndex, endIndex) -> {
+          int index = indexIn(in, fromIndex);
+          if (index >= 0) {
+            endIndex[0] = endOfRun(in, index);
+          }
+          return index;
+        });
+      }
+
+      @Override int lookahead() {
+        return 1; // The run of consecutive chars ends at a non-matching char.
+      }
+
+      @Override int resumeIndex(CharSequence input, int fromIndex) {
+        return Math.max(fromIndex, input.length()); // None of the scanned chars matched.
       }
 
       @Override public String toString() {
@@ -465,35 +592,55 @@ public final class Substring {
    * groups. That is, when matching {@code "(foo)+"} against {@code "foofoofoo"}, there will only
    * be one top-level group, with {@code "foo"} as the value.
    *
+   * <p>Like {@link #first(java.util.regex.Pattern)}, literals, alternations of literals and single
+   * char classes are matched without going through the regex engine.
+   *
    * @since 5.3
    */
   public static RepeatingPattern topLevelGroups(java.util.regex.Pattern regexPattern) {
     requireNonNull(regexPattern);
+    Pattern simple = SimpleRegex.compile(regexPattern);
+    MatcherPool matchers = new MatcherPool(regexPattern);
     return new RepeatingPattern() {
-      @Override public Stream<Match> match(String string) {
-        Matcher matcher = regexPattern.matcher(string);
-        if (!matcher.find()) return Stream.empty();
-        int groups = matcher.groupCount();
-        if (groups == 0) {
-          return Stream.of(Match.backtrackable(1, string, matcher.start(), matcher.end() - matcher.start()));
-        } else {
-          return MoreStreams.whileNotNull(new Supplier<Match>() {
-            private int next = 0;
-            private int g = 1;
-
-            @Override public Match get() {
-              for (; g <= groups; g++) {
-                int start = matcher.start(g);
-                int end = matcher.end(g);
-                if (start >= next) {
-                  next = end;
-                  return Match.backtrackable(1, string, start, end - start);
-                }
+      @Override public Stream<Match> match(CharSequence string) {
+        if (simple != null) { // No capturing group.
+          Match match = simple.match(string, 0);
+          return match == null ? Stream.empty() : Stream.of(match);
+        }
+        Matcher matcher = matchers.acquire(string);
+        int[] bounds;
+        try {
+          if (!matcher.find()) return Stream.empty();
+          // Copy the group bounds eagerly because the matcher is reused once released.
+          int groups = matcher.groupCount();
+          if (groups == 0) {
+            return Stream.of(Match.backtrackable(1, string, matcher.start(), matcher.end() - matcher.start()));
+          }
+          bounds = new int[groups * 2];
+          for (int g = 1; g <= groups; g++) {
+            bounds[g * 2 - 2] = matcher.start(g);
+            bounds[g * 2 - 1] = matcher.end(g);
+          }
+        } finally {
+          matchers.release(matcher);
+        }
+        return MoreStreams.whileNotNull(new Supplier<Match>() {
+          private int next = 0;
+          private int i = 0;
+
+          @Override public Match get() {
+            for (; i < bounds.length; i += 2) {
+              int start = bounds[i];
+              int end = bounds[i + 1];
+              if (start >= next) {
+                next = end;
+                i += 2;
+                return Match.backtrackable(1, string, start, end - start);
               }
-              return null;
             }
-          });
-        }
+            return null;
+          }
+        });
       }
 
       @Override public String toString() {
@@ -524,14 +671,27 @@ public final class Substring {
     if (group < 0 || (group > 0 && group > regexPattern.matcher("").groupCount())) {
       throw new IndexOutOfBoundsException("Capturing group " + group + " doesn't exist.");
     }
-    return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        Matcher matcher = regexPattern.matcher(input);
-        if (fromIndex <= input.length() && matcher.find(fromIndex)) {
-          int start = matcher.start(group);
-          return Match.backtrackable(1, input, start, matcher.end(group) - start);
+    MatcherPool matchers = new MatcherPool(regexPattern);
+    Pattern regexBased = new Pattern() {
+      @Override Match match(CharSequence input, int fromIndex) {
+        if (fromIndex > input.length()) {
+          return null;
         }
-        return null;
+        Matcher matcher = matchers.acquire(input);
+        try {
+          if (matcher.find(fromIndex)) {
+            int start = matcher.start(group);
+            return Match.backtrackable(1, input, start, matcher.end(group) - start);
+          }
+          return null;
+        } finally {
+          matchers.release(matcher);
+        }
+      }
+
+      /** Regex can look arbitrarily far ahead. Assume it's no more than one streaming chunk. */
+      @Override int lookahead() {
+        return STREAMING_CHUNK_SIZE;
       }
 
       /** Delegate to native regex backtracking, which can be more efficient for regex patterns. */
@@ -563,6 +723,40 @@ public final class Substring {
         return "first(\"" + regexPattern + "\", " + group + ")";
       }
     };
+    Pattern simple = group == 0 ? SimpleRegex.compile(regexPattern) : null;
+    if (simple == null) {
+      return regexBased;
+    }
+    // Matches without the regex engine, but lookarounds still need to backtrack into the regex.
+    return new Pattern() {
+      @Override Match match(CharSequence input, int fromIndex) {
+        return simple.match(input, fromIndex);
+      }
+
+      @Override Pattern lookaround(String lookbehind, String lookahead) {
+        return regexBased.lookaround(lookbehind, lookahead);
+      }
+
+      @Override Pattern negativeLookaround(String lookbehind, String lookahead) {
+        return regexBased.negativeLookaround(lookbehind, lookahead);
+      }
+
+      @Override boolean canMatchFromAnyIndex() {
+        return simple.canMatchFromAnyIndex();
+      }
+
+      @Override int incrementalMatchLength() {
+        return simple.incrementalMatchLength();
+      }
+
+      @Override int lookahead() {
+        return simple.lookahead();
+      }
+
+      @Override public String toString() {
+        return simple.toString();
+      }
+    };
   }
 
   /**
@@ -580,38 +774,17 @@ public final class Substring {
    * @since 6.1
    */
   public static Collector<Pattern, ?, Pattern> firstOccurrence() {
-    final class Occurrence {
-      private final Pattern pattern;
-      private final int stableOrder;
-      final Match match;
-
-      @Override public String toString() {
-        return pattern + ": " + match.toString();
-      }
-
-      Occurrence(Pattern pattern, Match match, int stableOrder) {
-        this.pattern = pattern;
-        this.match = match;
-        this.stableOrder = stableOrder;
-      }
-
-      void enqueueNextOccurrence(String input, int fromIndex, Queue<Occurrence> queue) {
-        Match nextMatch = pattern.match(input, fromIndex);
-        if (nextMatch != null) {
-          queue.add(new Occurrence(pattern, nextMatch, stableOrder));
-        }
-      }
-    }
-    Comparator<Occurrence> byIndex =
-        comparingInt((Occurrence occurrence) -> occurrence.match.index())
-            .thenComparingInt(occurrence -> occurrence.stableOrder);
     return collectingAndThen(
         toImmutableList(),
         candidates -> {
+          LiteralTrie trie = literalTrie(candidates);
           return new Pattern() {
             @Override
-            Match match(String input, int fromIndex) {
+            Match match(CharSequence input, int fromIndex) {
               requireNonNull(input);
+              if (trie != null) {
+                return trie.find(input, fromIndex);
+              }
               Match best = null;
               for (Pattern candidate : candidates) {
                 Match match = candidate.match(input, fromIndex);
@@ -628,40 +801,31 @@ public final class Substring {
               return best;
             }
 
-            @Override Stream<Match> iterate(String input) {
-              PriorityQueue<Occurrence> occurrences =
-                  new PriorityQueue<>(max(1, candidates.size()), byIndex);
-              for (int i = 0; i < candidates.size(); i++) {
-                Pattern candidate = candidates.get(i);
-                Match match = candidate.match(input, 0);
-                if (match != null) {
-                  occurrences.add(new Occurrence(candidate, match, i));
+            // An earlier occurrence of another candidate may end after the match.
+            @Override int lookahead() {
+              int lookahead = 0;
+              for (Pattern candidate : candidates) {
+                int maxLength = candidate.incrementalMatchLength();
+                int candidateLookahead = candidate.lookahead();
+                if (maxLength < 0 || candidateLookahead < 0) {
+                  return -1;
                 }
+                lookahead = Math.max(lookahead, maxLength + candidateLookahead);
               }
-              return MoreStreams.whileNotNull(
-                  () -> {
-                    final Occurrence occurrence = occurrences.poll();
-                    if (occurrence == null) {
-                      return null;
-                    }
-                    final Match match = occurrence.match;
-
-                    // For allOccurrencesOf([before(first('/')), first('/')]) against input = "foo/bar",
-                    // before(first('/')) will match the first occurrence of "foo".
-                    // In the next iteration, we want to start *after* the '/' for the repetition
-                    // of before(first('/')), yet start from the '/' for the other unmatched first('/').
-                    // The expected result is [foo, /].
-                    if (match.repetitionStartIndex <= input.length()) {
-                      occurrence.enqueueNextOccurrence(input, match.repetitionStartIndex, occurrences);
-                    }
-                    for (final int waterMark = match.endIndex; ;) {
-                      Occurrence nextInLine = occurrences.peek();
-                      if (nextInLine == null || nextInLine.match.index() >= waterMark) {
-                        return match;
-                      }
-                      occurrences.remove().enqueueNextOccurrence(input, waterMark, occurrences);
-                    }
-                  });
+              return lookahead;
+            }
+
+            @Override MatchCursor iterate(CharSequence input) {
+              if (trie != null) { // Each literal restarts from the end of the previous match.
+                return iterateByIndex(input, trie::locate);
+              }
+              Occurrences occurrences = new Occurrences(candidates, input);
+              return new MatchCursor() {
+                @Override Match nextMatch() {
+                  Occurrence occurrence = occurrences.next();
+                  return occurrence == null ? null : occurrence.match;
+                }
+              };
             }
 
             // separatedBy() moves one char at a time when boundary mismatches.
@@ -714,6 +878,221 @@ public final class Substring {
         });
   }
 
+  /**
+   * Returns a {@code Pattern} that matches the first occurrence of any of the {@code candidates}.
+   * If more than one candidates occur at the same index, the one appearing first in {@code
+   * candidates} wins.
+   *
+   * <p>Equivalent to but more efficient than {@code
+   * candidates.stream().map(Substring::first).collect(firstOccurrence())}, because all candidates
+   * are compiled into a single automaton and searched for in one pass over the input string. For
+   * example, to find the first log level in a log line:
+   *
+   * <pre>{@code
+   * private static final Substring.Pattern LOG_LEVEL =
+   *     Substring.firstOf("FATAL", "ERROR", "WARN", "INFO", "DEBUG");
+   * }</pre>
+   *
+   * @throws IllegalArgumentException if any candidate is empty
+   * @since 6.2
+   */
+  public static Pattern firstOf(String... candidates) {
+    return firstOf(asList(candidates));
+  }
+
+  /**
+   * Returns a {@code Pattern} that matches the first occurrence of any of the {@code candidates}.
+   * If more than one candidates occur at the same index, the one appearing first in {@code
+   * candidates} wins.
+   *
+   * <p>Equivalent to but more efficient than {@code
+   * candidates.stream().map(Substring::first).collect(firstOccurrence())}, because all candidates
+   * are compiled into a single automaton and searched for in one pass over the input string.
+   *
+   * @throws IllegalArgumentException if any candidate is empty
+   * @since 6.2
+   */
+  public static Pattern firstOf(Collection<String> candidates) {
+    List<String> literals = candidates.stream().collect(toImmutableList());
+    for (String literal : literals) {
+      if (literal.isEmpty()) {
+        throw new IllegalArgumentException("Empty candidate in " + literals);
+      }
+    }
+    if (literals.size() == 1) {
+      return first(literals.get(0));
+    }
+    LiteralTrie trie = new LiteralTrie(literals);
+    return new Pattern() {
+      @Override Match match(CharSequence input, int fromIndex) {
+        return trie.find(input, fromIndex);
+      }
+
+      @Override MatchCursor iterate(CharSequence input) {
+        return iterateByIndex(input, trie::locate);
+      }
+
+      @Override int incrementalMatchLength() {
+        return literals.stream().mapToInt(String::length).max().orElse(0);
+      }
+
+      /** A longer candidate may occur earlier but end after the match. */
+      @Override int lookahead() {
+        return incrementalMatchLength();
+      }
+
+      @Override public String toString() {
+        return "firstOf(" + literals + ")";
+      }
+    };
+  }
+
+  /**
+   * Returns a {@code Pattern} that matches the longest of {@code candidates} that the input string
+   * starts with. For example, to route a request path:
+   *
+   * <pre>{@code
+   * private static final Substring.Pattern ROUTES =
+   *     Substring.prefixes("/api/", "/api/v2/", "/static/");
+   *
+   * ROUTES.in("/api/v2/users").map(Match::toString)  // => "/api/v2/"
+   * ROUTES.removeFrom("/api/v2/users")               // => "users"
+   * }</pre>
+   *
+   * <p>Equivalent to but more efficient than trying each {@link Substring#prefix(String)} in turn,
+   * because the candidates are indexed in a trie. Only the leading chars of the input that can
+   * still extend a candidate are inspected, regardless of the number of candidates.
+   *
+   * @since 6.2
+   */
+  public static Pattern prefixes(String... candidates) {
+    return prefixes(asList(candidates));
+  }
+
+  /**
+   * Returns a {@code Pattern} that matches the longest of {@code candidates} that the input string
+   * starts with.
+   *
+   * <p>Equivalent to but more efficient than trying each {@link Substring#prefix(String)} in turn,
+   * because the candidates are indexed in a trie. Only the leading chars of the input that can
+   * still extend a candidate are inspected, regardless of the number of candidates.
+   *
+   * @since 6.2
+   */
+  public static Pattern prefixes(Collection<String> candidates) {
+    List<String> literals = candidates.stream().collect(toImmutableList());
+    LiteralTrie trie = new LiteralTrie(literals);
+    return new Pattern() {
+      @Override Match match(CharSequence input, int fromIndex) {
+        int length = fromIndex > input.length() ? -1 : trie.longestPrefixAt(input, fromIndex);
+        return length < 0 ? null : Match.nonBacktrackable(input, fromIndex, length);
+      }
+
+      @Override public String toString() {
+        return "prefixes(" + literals + ")";
+      }
+    };
+  }
+
+  /**
+   * Returns a {@code Pattern} that matches the longest of {@code candidates} that the input string
+   * ends with. For example, {@code suffixes(".gz", ".tar.gz", ".zip").removeFrom("src.tar.gz")}
+   * will return {@code "src"}.
+   *
+   * <p>Equivalent to but more efficient than trying each {@link Substring#suffix(String)} in turn,
+   * because the candidates are indexed in a trie. Only the trailing chars of the input that can
+   * still extend a candidate are inspected, regardless of the number of candidates.
+   *
+   * @since 6.2
+   */
+  public static Pattern suffixes(String... candidates) {
+    return suffixes(asList(candidates));
+  }
+
+  /**
+   * Returns a {@code Pattern} that matches the longest of {@code candidates} that the input string
+   * ends with.
+   *
+   * <p>Equivalent to but more efficient than trying each {@link Substring#suffix(String)} in turn,
+   * because the candidates are indexed in a trie. Only the trailing chars of the input that can
+   * still extend a candidate are inspected, regardless of the number of candidates.
+   *
+   * @since 6.2
+   */
+  public static Pattern suffixes(Collection<String> candidates) {
+    List<String> literals = candidates.stream().collect(toImmutableList());
+    LiteralTrie reversed =
+        new LiteralTrie(literals.stream().map(Substring::reverse).collect(toImmutableList()));
+    return new Pattern() {
+      @Override Match match(CharSequence input, int fromIndex) {
+        int length = fromIndex > input.length() ? -1 : reversed.longestSuffixFrom(input, fromIndex);
+        return length < 0 ? null : Match.suffix(input, length);
+      }
+
+      @Override public String toString() {
+        return "suffixes(" + literals + ")";
+      }
+    };
+  }
+
+  /**
+   * Returns a function that replaces all occurrences of the rule patterns in the input string in a
+   * single pass, with the replacement computed by the corresponding rule function. For example:
+   *
+   * <pre>{@code
+   * private static final UnaryOperator<String> ESCAPE_HTML =
+   *     Substring.replacing(
+   *         ImmutableMap.of(
+   *             first('&'), m -> "&amp;",
+   *             first('<'), m -> "&lt;",
+   *             first('>'), m -> "&gt;",
+   *             first('"'), m -> "&quot;"));
+   * }</pre>
+   *
+   * <p>All rule patterns are applied as if by {@link #firstOccurrence}: at each position, the
+   * leftmost match wins. If more than one rule match at the same index, the rule appearing first in
+   * the iteration order of {@code rules} wins; so use a {@code LinkedHashMap} or Guava {@code
+   * ImmutableMap} to control the precedence. Replaced text isn't rescanned.
+   *
+   * <p>Compared to applying {@link RepeatingPattern#replaceAllFrom} once per rule, the input string
+   * is only scanned once and only one result string is built, regardless of the number of rules.
+   *
+   * <p>The returned function throws {@link NullPointerException} if a rule function returns null.
+   *
+   * @since 6.2
+   */
+  public static UnaryOperator<String> replacing(
+      Map<? extends Pattern, ? extends Function<? super Match, ? extends CharSequence>> rules) {
+    List<Pattern> patterns = new ArrayList<>(rules.size());
+    List<Function<? super Match, ? extends CharSequence>> replacements =
+        new ArrayList<>(rules.size());
+    for (Map.Entry<? extends Pattern, ? extends Function<? super Match, ? extends CharSequence>>
+        rule : rules.entrySet()) {
+      patterns.add(requireNonNull(rule.getKey()));
+      replacements.add(requireNonNull(rule.getValue()));
+    }
+    return string -> {
+      Occurrences occurrences = new Occurrences(patterns, string);
+      Occurrence occurrence = occurrences.next();
+      if (occurrence == null) {
+        return string;
+      }
+      StringBuilder builder = new StringBuilder(string.length());
+      int index = 0;
+      do {
+        Match match = occurrence.match;
+        CharSequence replacement = replacements.get(occurrence.candidateIndex).apply(match);
+        if (replacement == null) {
+          throw new NullPointerException("No replacement is returned for " + match);
+        }
+        builder.append(string, index, match.startIndex).append(replacement);
+        index = match.endIndex;
+        occurrence = occurrences.next();
+      } while (occurrence != null);
+      return builder.append(string, index, string.length()).toString();
+    };
+  }
+
   /**
    * Returns a {@code Pattern} that matches the first occurrence of {@code stop1}, followed by an
    * occurrence of {@code stop2}, followed sequentially by occurrences of {@code moreStops} in
@@ -732,9 +1111,13 @@ public final class Substring {
     if (str.length() == 1) {
       return last(str.charAt(0));
     }
+    Horspool horspool = str.length() >= HORSPOOL_MIN_LENGTH ? new Horspool(str) : null;
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        int index = input.lastIndexOf(str);
+      @Override Match match(CharSequence input, int fromIndex) {
+        int index =
+            horspool == null
+                ? lastIndexOf(input, str)
+                : horspool.lastIndexOf(input, input.length());
         return index >= fromIndex ? Match.nonBacktrackable(input, index, str.length()) : null;
       }
 
@@ -747,8 +1130,8 @@ public final class Substring {
   /** Returns a {@code Pattern} that matches the last occurrence of {@code character}. */
   public static Pattern last(char character) {
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
-        int index = input.lastIndexOf(character);
+      @Override Match match(CharSequence input, int fromIndex) {
+        int index = lastIndexOf(input, character);
         return index >= fromIndex ? Match.nonBacktrackable(input, index, 1) : null;
       }
 
@@ -770,7 +1153,7 @@ public final class Substring {
   public static Pattern before(Pattern delimiter) {
     requireNonNull(delimiter);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
+      @Override Match match(CharSequence input, int fromIndex) {
         Match match = delimiter.match(input, fromIndex);
         return match == null
             ? null
@@ -806,7 +1189,7 @@ public final class Substring {
   public static Pattern after(Pattern delimiter) {
     requireNonNull(delimiter);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
+      @Override Match match(CharSequence input, int fromIndex) {
         Match match = delimiter.match(input, fromIndex);
         return match == null ? null : match.following();
       }
@@ -833,7 +1216,7 @@ public final class Substring {
   public static Pattern upToIncluding(Pattern pattern) {
     requireNonNull(pattern);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
+      @Override Match match(CharSequence input, int fromIndex) {
         Match match = pattern.match(input, fromIndex);
         return match == null
             ? null
@@ -893,7 +1276,7 @@ public final class Substring {
     requireNonNull(open);
     requireNonNull(close);
     return new Pattern() {
-      @Override Match match(String input, int fromIndex) {
+      @Override Match match(CharSequence input, int fromIndex) {
         Match left = open.match(input, fromIndex);
         if (left == null) {
           return null;
@@ -913,13 +1296,36 @@ public final class Substring {
             /*length=*/ len);
       }
 
+      // The closing delimiter follows the match.
+      @Override int lookahead() {
+        int closeLength = close.incrementalMatchLength();
+        return open.lookahead() < 0 || close.lookahead() < 0 || closeLength < 0
+            ? -1
+            : Math.max(open.lookahead(), closeLength + close.lookahead());
+      }
+
+      // Until the closing delimiter shows up, only the input from the opening delimiter is needed.
+      @Override int resumeIndex(CharSequence input, int fromIndex) {
+        Match left = open.match(input, fromIndex);
+        if (left == null) {
+          return open.resumeIndex(input, fromIndex);
+        }
+        return input.length() - left.endIndex >= open.lookahead() ? left.startIndex : fromIndex;
+      }
+
       @Override public String toString() {
         return "between(" + open + ", " + close + ")";
       }
     };
   }
 
-  /** A pattern that can be matched against a string, finding a single substring from it. */
+  /**
+   * A pattern that can be matched against a string, finding a single substring from it.
+   *
+   * <p>Besides {@code String}, patterns can be matched against any {@link CharSequence}, such as
+   * {@code StringBuilder} or a {@code CharBuffer} decoded from network reads, without first
+   * copying it into a {@code String}.
+   */
   public abstract static class Pattern {
     /**
      * Matches this pattern against {@code string}, returning a {@code Match} if successful, or
@@ -929,10 +1335,15 @@ public final class Substring {
      * {@link Match#before}. If you just need the matched substring itself, prefer to use {@link
      * #from} instead.
      */
-    public final Optional<Match> in(String string) {
+    public final Optional<Match> in(CharSequence string) {
       return Optional.ofNullable(match(string));
     }
 
+    /** Equivalent to {@link #in(CharSequence)}. */
+    public final Optional<Match> in(String string) {
+      return in((CharSequence) string);
+    }
+
     /**
      * Matches this pattern against {@code string}, returning the matched substring if successful,
      * or {@code empty()} otherwise. {@code pattern.from(str)} is equivalent to {@code
@@ -942,7 +1353,7 @@ public final class Substring {
      * to call {@link Match} methods, like {@link Match#remove} or {@link Match#before}.
      */
     public final Optional<String> from(CharSequence string) {
-      return Optional.ofNullable(Objects.toString(match(string.toString()), null));
+      return Optional.ofNullable(Objects.toString(match(string), null));
     }
 
     /**
@@ -980,7 +1391,7 @@ public final class Substring {
     public final Pattern toEnd() {
       Pattern base = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
+        @Override Match match(CharSequence input, int fromIndex) {
           Match match = base.match(input, fromIndex);
           return match == null ? null : match.toEnd();
         }
@@ -999,7 +1410,7 @@ public final class Substring {
       requireNonNull(that);
       Pattern base = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
+        @Override Match match(CharSequence input, int fromIndex) {
           Match match = base.match(input, fromIndex);
           return match == null ? that.match(input, fromIndex) : match;
         }
@@ -1051,14 +1462,18 @@ public final class Substring {
       checkNumChars(maxChars);
       Pattern base = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
+        @Override Match match(CharSequence input, int fromIndex) {
           Match m = base.match(input, fromIndex);
           return m == null ? null : m.limit(maxChars);
         }
 
+        @Override int lookahead() {
+          return base.lookahead() == 0 ? 0 : -1;
+        }
+
         // For, firstOccurrence().limit().repeatedly(), apply firstOccurrence().iterate()
         // and then apply limit() on the result matches to take advantage of the optimization.
-        @Override Stream<Match> iterate(String input) {
+        @Override MatchCursor iterate(CharSequence input) {
           return base.iterate(input).map(m -> m.limit(maxChars));
         }
 
@@ -1082,15 +1497,23 @@ public final class Substring {
       checkNumChars(fromEnd);
       Pattern original = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
+        @Override Match match(CharSequence input, int fromIndex) {
           Match m = original.match(input, fromIndex);
           return m == null ? null : m.skip(fromBeginning, fromEnd);
         }
 
+        @Override int incrementalMatchLength() {
+          return original.incrementalMatchLength();
+        }
+
+        @Override int lookahead() {
+          return original.lookahead() < 0 ? -1 : original.lookahead() + fromEnd;
+        }
+
         // For firstOccurrence().skiip().repeatedly(), apply
         // firstOccurrence().iterate() to take advantage of the optimization and then apply
         // skip() on the result matches.
-        @Override Stream<Match> iterate(String input) {
+        @Override MatchCursor iterate(CharSequence input) {
           return original.iterate(input).map(m -> m.skip(fromBeginning, fromEnd));
         }
 
@@ -1112,7 +1535,7 @@ public final class Substring {
       requireNonNull(following);
       Pattern base = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
+        @Override Match match(CharSequence input, int fromIndex) {
           Match preceding = base.match(input, fromIndex);
           if (preceding == null) {
             return null;
@@ -1133,6 +1556,12 @@ public final class Substring {
               : next;
         }
 
+        @Override int lookahead() {
+          return base.lookahead() < 0 || following.lookahead() < 0
+              ? -1
+              : Math.max(base.lookahead(), following.lookahead());
+        }
+
         @Override public Pattern separatedBy(CharPredicate boundaryBefore, CharPredicate boundaryAfter) {
           return base.then(following.separatedBy(boundaryBefore, boundaryAfter));
         }
@@ -1203,7 +1632,7 @@ public final class Substring {
       requireNonNull(following);
       Pattern base = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
+        @Override Match match(CharSequence input, int fromIndex) {
           Match preceding = base.match(input, fromIndex);
           if (preceding == null) {
             return null;
@@ -1271,7 +1700,7 @@ public final class Substring {
       requireNonNull(separatorAfter);
       Pattern target = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
+        @Override Match match(CharSequence input, int fromIndex) {
           while (fromIndex <= input.length()) {
             if (fromIndex > 0 && !separatorBefore.test(input.charAt(fromIndex - 1))) {
               fromIndex++;
@@ -1294,6 +1723,14 @@ public final class Substring {
           return null;
         }
 
+        @Override int incrementalMatchLength() {
+          return lookahead() < 0 ? -1 : target.incrementalMatchLength();
+        }
+
+        @Override int lookahead() {
+          return boundedLookahead(target, 1);
+        }
+
         @Override public String toString() {
           return target + ".separatedBy(" + separatorBefore + ", " + separatorAfter + ")";
         }
@@ -1443,7 +1880,7 @@ public final class Substring {
     public final Pattern not() {
       Pattern base = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
+        @Override Match match(CharSequence input, int fromIndex) {
           return base.match(input, fromIndex) == null ? BEGINNING.match(input, fromIndex) : null;
         }
         @Override public String toString() {
@@ -1460,7 +1897,7 @@ public final class Substring {
       requireNonNull(following);
       Pattern base = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
+        @Override Match match(CharSequence input, int fromIndex) {
           Match preceding = base.match(input, fromIndex);
           if (preceding == null) {
             return null;
@@ -1500,7 +1937,7 @@ public final class Substring {
      * @since 5.0
      */
     public final BiOptional<String, String> split(CharSequence string) {
-      Match match = match(string.toString());
+      Match match = match(string);
       return match == null ? BiOptional.empty() : BiOptional.of(match.before(), match.after());
     }
 
@@ -1546,7 +1983,7 @@ public final class Substring {
      * @since 5.0
      */
     public final BiOptional<String, String> splitThenTrim(CharSequence string) {
-      Match match = match(string.toString());
+      Match match = match(string);
       return match == null
           ? BiOptional.empty()
           : BiOptional.of(match.before().trim(), match.after().trim());
@@ -1561,10 +1998,71 @@ public final class Substring {
      */
     public RepeatingPattern repeatedly() {
       return new RepeatingPattern() {
-        @Override public Stream<Match> match(String input) {
+        @Override public Stream<Match> match(CharSequence input) {
+          return iterate(requireNonNull(input)).stream();
+        }
+
+        @Override public MatchCursor scan(CharSequence input) {
           return iterate(requireNonNull(input));
         }
 
+        @Override public Stream<Match> split(CharSequence input) {
+          return canMatchFromAnyIndex()
+              ? StreamSupport.stream(new DelimitedSpliterator(Pattern.this, input), false)
+              : super.split(input);
+        }
+
+        @Override public Stream<String> from(Reader input) {
+          requireNonNull(input);
+          IncrementalMatcher matcher =
+              new IncrementalMatcher(
+                  Pattern.this, /*lookbehind=*/ STREAMING_CHUNK_SIZE, /*retainUnmatched=*/ false);
+          char[] chunk = new char[STREAMING_CHUNK_SIZE];
+          return MoreStreams.whileNotNull(() -> {
+            for (; ; ) {
+              Match match = matcher.next();
+              if (match != null) {
+                return match.toString();
+              }
+              if (matcher.ended()) {
+                return null;
+              }
+              int read = read(input, chunk);
+              if (read < 0) {
+                matcher.end();
+              } else {
+                matcher.append(chunk, read);
+              }
+            }
+          });
+        }
+
+        @Override public Tokenizer tokenizer() {
+          IncrementalMatcher matcher =
+              new IncrementalMatcher(
+                  Pattern.this, /*lookbehind=*/ STREAMING_CHUNK_SIZE, /*retainUnmatched=*/ true);
+          return new Tokenizer() {
+            @Override void append(CharSequence chunk, List<String> segments) {
+              matcher.append(chunk);
+              addSegments(segments);
+            }
+
+            @Override void end(List<String> segments) {
+              matcher.end();
+              addSegments(segments);
+              segments.add(matcher.remaining());
+            }
+
+            private void addSegments(List<String> segments) {
+              int segmentStart = matcher.unmatchedIndex();
+              for (Match match = matcher.next(); match != null; match = matcher.next()) {
+                segments.add(match.context.subSequence(segmentStart, match.startIndex).toString());
+                segmentStart = match.endIndex;
+              }
+            }
+          };
+        }
+
         @Override public String toString() {
           return Pattern.this + ".repeatedly()";
         }
@@ -1575,44 +2073,121 @@ public final class Substring {
      * Matches against {@code string} starting from {@code fromIndex}, and returns null if not
      * found.
      */
-    abstract Match match(String string, int fromIndex);
+    abstract Match match(CharSequence string, int fromIndex);
 
-    /** Applies this pattern repeatedly against {@code input} and returns all iterations. */
-    Stream<Match> iterate(String input) {
-      return MoreStreams.whileNotNull(
-          new Supplier<Match>() {
-            private final int end = input.length();
-            private int nextIndex = 0;
+    /**
+     * Returns true if repeatedly applying this pattern from any index finds exactly the matches
+     * at or after that index that would have been found by repeatedly applying it from the
+     * beginning. This allows the input to be split at the first match from an arbitrary index and
+     * processed in parallel.
+     */
+    boolean canMatchFromAnyIndex() {
+      return false;
+    }
 
-            @Override public Match get() {
-              if (nextIndex > end) {
-                return null;
-              }
-              Match match = match(input, nextIndex);
-              if (match == null) {
-                return null;
-              }
-              if (match.endIndex == end) { // We've consumed the entire string.
-                nextIndex = Integer.MAX_VALUE;
-              } else if (match.repetitionStartIndex > nextIndex) {
-                nextIndex = match.repetitionStartIndex;
-              } else {
-                throw new IllegalStateException(
-                    "Infinite loop detected at " + match.repetitionStartIndex);
-              }
-              return match;
-            }
-          });
+    /**
+     * Returns the string this pattern searches for if it's a plain literal search like {@link
+     * Substring#first(String)}, or null otherwise.
+     */
+    String literal() {
+      return null;
+    }
+
+    /**
+     * Returns the maximum length of a match if this pattern finds the leftmost match within a
+     * bounded {@link #lookahead}, or -1 otherwise. When no match is found in a partial input, such
+     * patterns can resume scanning from near the end of it.
+     */
+    int incrementalMatchLength() {
+      String literal = literal();
+      return literal == null || literal.isEmpty() ? -1 : literal.length();
     }
 
-    private Match match(String string) {
-      return match(string, 0);
+    /**
+     * Returns the number of characters that need to follow a match in a partial input before the
+     * match is known to be found in the complete input, or -1 if matches can't be determined
+     * before the end of the input (as with {@link Substring#last} or {@link #or}).
+     */
+    int lookahead() {
+      return incrementalMatchLength() >= 0 ? 0 : -1;
+    }
+
+    /**
+     * Given that no match is found in the partial {@code input} from {@code fromIndex}, returns the
+     * index from which scanning can resume after more input is appended, without missing a match
+     * or changing the matches found. The input before this index is no longer needed.
+     */
+    int resumeIndex(CharSequence input, int fromIndex) {
+      int maxLength = incrementalMatchLength();
+      return maxLength <= 0 || lookahead() < 0
+          ? fromIndex
+          : Math.max(fromIndex, input.length() - lookahead() - maxLength + 1);
+    }
+
+    /** Applies this pattern repeatedly against {@code input} and returns all iterations. */
+    MatchCursor iterate(CharSequence input) {
+      return new MatchCursor() {
+        private final int end = input.length();
+        private int nextIndex = 0;
+
+        @Override Match nextMatch() {
+          if (nextIndex > end) {
+            return null;
+          }
+          Match match = match(input, nextIndex);
+          if (match == null) {
+            return null;
+          }
+          if (match.endIndex == end) { // We've consumed the entire string.
+            nextIndex = Integer.MAX_VALUE;
+          } else if (match.repetitionStartIndex > nextIndex) {
+            nextIndex = match.repetitionStartIndex;
+          } else {
+            throw new IllegalStateException(
+                "Infinite loop detected at " + match.repetitionStartIndex);
+          }
+          return match;
+        }
+      };
+    }
+
+    /**
+     * Applies this pattern repeatedly against {@code input}, given that all matches are non-empty
+     * and each repetition starts right after the previous match. The matches are located through
+     * {@code locator}, so no {@code Match} is allocated unless requested by {@link
+     * MatchCursor#nextMatch}.
+     */
+    final MatchCursor iterateByIndex(CharSequence input, MatchLocator locator) {
+      return new MatchCursor() {
+        private final int[] endIndex = new int[1];
+        private int nextIndex = 0;
+
+        @Override boolean advance() {
+          int index =
+              nextIndex <= input.length() ? locator.locate(input, nextIndex, endIndex) : -1;
+          if (index < 0) {
+            nextIndex = Integer.MAX_VALUE;
+            return false;
+          }
+          nextIndex = endIndex[0];
+          setCurrent(index, nextIndex);
+          return true;
+        }
+
+        @Override Match nextMatch() {
+          return advance() ? Match.backtrackable(1, input, index(), length()) : null;
+        }
+      };
+    }
+
+    private Match match(CharSequence string) {
+      return match(requireNonNull(string), 0);
     }
 
     Pattern lookaround(String lookbehind, String lookahead) {
       Pattern target = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
+        @Override Match match(CharSequence input, int fromIndex) {
           int lastIndex = input.length() - lookahead.length();
           while (fromIndex <= lastIndex) {
             Match match = target.match(input, fromIndex);
@@ -1624,6 +2199,14 @@ public final class Substring {
           return null;
         }
 
+        @Override int incrementalMatchLength() {
+          return lookahead() < 0 ? -1 : target.incrementalMatchLength();
+        }
+
+        @Override int lookahead() {
+          return boundedLookahead(target, lookahead.length());
+        }
+
         @Override public String toString() {
           return target + ".immediatelyBetween('" + lookbehind + "', '" + lookahead + "')";
         }
@@ -1633,7 +2216,7 @@ public final class Substring {
     Pattern negativeLookaround(String lookbehind, String lookahead) {
       Pattern target = this;
       return new Pattern() {
-        @Override Match match(String input, int fromIndex) {
+        @Override Match match(CharSequence input, int fromIndex) {
           while (fromIndex <= input.length()) {
             Match match = target.match(input, fromIndex);
             if (match == null || !match.isImmediatelyBetween(lookbehind, lookahead)) {
@@ -1644,6 +2227,14 @@ public final class Substring {
           return null;
         }
 
+        @Override int incrementalMatchLength() {
+          return lookahead() < 0 ? -1 : target.incrementalMatchLength();
+        }
+
+        @Override int lookahead() {
+          return boundedLookahead(target, lookahead.length());
+        }
+
         @Override public String toString() {
           return target + ".notImmediatelyBetween('" + lookbehind + "', '" + lookahead + "')";
         }
@@ -1680,7 +2271,95 @@ public final class Substring {
      *
      * <p>An empty stream is returned if this pattern has no matches in the {@code input} string.
      */
-    public abstract Stream<Match> match(String input);
+    public abstract Stream<Match> match(CharSequence input);
+
+    /** Equivalent to {@link #match(CharSequence)}. */
+    public Stream<Match> match(String input) {
+      return match((CharSequence) input);
+    }
+
+    /**
+     * Applies this pattern against {@code input} and returns a {@link MatchCursor} to iterate
+     * through the matches.
+     *
+     * <p>Iterations follow the same order as {@link #match}, but without the overhead of a {@code
+     * Stream} pipeline. The matches are reported as indexes into {@code input}, with no substring
+     * created, making this method suitable for hot loops such as tokenizing a large number of
+     * records:
+     *
+     * <pre>{@code
+     * MatchCursor cursor = first(',').repeatedly().scan(record);
+     * while (cursor.next()) {
+     *   handleDelimiter(cursor.index(), cursor.endIndex());
+     * }
+     * }</pre>
+     *
+     * <p>When {@link Substring#first(String)}, {@link Substring#first(char)}, {@link
+     * Substring#first(CharPredicate)}, {@link Substring#firstOf} or {@link Substring#consecutive} is
+     * repeated, the cursor advances by index alone, without allocating any object per match. Other
+     * patterns still create a {@link Match} per iteration internally.
+     *
+     * @since 6.2
+     */
+    public MatchCursor scan(CharSequence input) {
+      Iterator<Match> matches = match(input).iterator();
+      return new MatchCursor() {
+        @Override Match nextMatch() {
+          return matches.hasNext() ? matches.next() : null;
+        }
+      };
+    }
+
+    /**
+     * Applies this pattern against {@code input} and returns the start indexes of the matches as
+     * an {@link IntStream}. For example, {@code first(',').repeatedly().startIndexes("a,b,c")}
+     * will return {@code [1, 3]}.
+     *
+     * <p>Iterations follow the same order as {@link #match}, but the indexes are reported without
+     * boxing or creating substrings.
+     *
+     * <p>Pattern matching is lazy and doesn't start until the returned stream is consumed.
+     *
+     * @since 6.2
+     */
+    public IntStream startIndexes(CharSequence input) {
+      MatchCursor cursor = scan(requireNonNull(input));
+      return StreamSupport.intStream(
+          new Spliterators.AbstractIntSpliterator(
+              Long.MAX_VALUE, Spliterator.NONNULL | Spliterator.ORDERED) {
+            @Override public boolean tryAdvance(IntConsumer action) {
+              if (!cursor.next()) {
+                return false;
+              }
+              action.accept(cursor.index());
+              return true;
+            }
+          },
+          false);
+    }
+
+    /**
+     * Applies this pattern against {@code input} and returns the start indexes of all the matches
+     * in an {@code int} array. For example, an offset index of the line breaks in a file can be
+     * built with {@code first('\n').repeatedly().indexes(content)}.
+     *
+     * <p>Equivalent to {@code startIndexes(input).toArray()}, but collects the indexes directly
+     * into a growable array without going through a stream pipeline.
+     *
+     * @since 6.2
+     */
+    public int[] indexes(CharSequence input) {
+      MatchCursor cursor = scan(requireNonNull(input));
+      int[] indexes = new int[16];
+      int size = 0;
+      while (cursor.next()) {
+        if (size == indexes.length) {
+          indexes = Arrays.copyOf(indexes, size * 2);
+        }
+        indexes[size++] = cursor.index();
+      }
+      return Arrays.copyOf(indexes, size);
+    }
 
     /**
      * Applies this pattern against {@code string} and returns a stream of each iteration.
@@ -1697,7 +2376,91 @@ public final class Substring {
      * <p>An empty stream is returned if this pattern has no matches in the {@code input} string.
      */
     public Stream<String> from(CharSequence input) {
-      return match(input.toString()).map(Match::toString);
+      return match(input).map(Match::toString);
+    }
+
+    /**
+     * Applies this pattern against the characters read from {@code input} and returns a lazy stream
+     * of each iteration, without first reading the entire input into memory. For example, to
+     * extract the records from a large file:
+     *
+     * <pre>{@code
+     * try (Reader reader = Files.newBufferedReader(path)) {
+     *   between("<record>", "</record>").repeatedly().from(reader).forEach(this::processRecord);
+     * }
+     * }</pre>
+     *
+     * <p>For the {@link Pattern#repeatedly} of a pattern that searches forward from the current
+     * position, such as {@link Substring#first}, {@link Substring#firstOf}, {@link
+     * Substring#between}, {@link Substring#consecutive} and their lookaround variants, the input is
+     * read one chunk at a time as the returned stream is consumed, and each match is reported as
+     * soon as the input following it can no longer change it. The characters that can no longer
+     * be part of a match are discarded. So for {@link Substring#first(String)}, {@link
+     * Substring#first(char)}, {@link Substring#first(CharPredicate)}, {@link Substring#firstOf},
+     * {@link Substring#consecutive}, {@link Substring#word}, {@link Substring#between} of these
+     * patterns, and their lookaround variants, the memory footprint is bounded by the chunk size
+     * plus the longest match, instead of by the size of the input. Other forward-searching
+     * patterns, such as regex, may retain the input since the previous match. Regex patterns are
+     * assumed to look no further than 8K characters around the match.
+     *
+     * <p>Patterns whose matches may depend on the end of the input, such as {@link Pattern#or},
+     * {@link Substring#last} or {@link Substring#END}, read the entire input before reporting any
+     * match, as do other {@code RepeatingPattern} implementations.
+     *
+     * <p>{@code input} isn't closed by this method. {@link IOException} thrown while reading from
+     * {@code input} is propagated as {@link UncheckedIOException}.
+     *
+     * @since 6.2
+     */
+    public Stream<String> from(Reader input) {
+      StringBuilder builder = new StringBuilder();
+      char[] chunk = new char[STREAMING_CHUNK_SIZE];
+      for (int read = read(input, chunk); read >= 0; read = read(input, chunk)) {
+        builder.append(chunk, 0, read);
+      }
+      return from(builder);
+    }
+
+    /**
+     * Returns a {@link Tokenizer} that splits input fed in successive chunks around the matches of
+     * this pattern, as {@link #split} would have split the concatenated input. For example, to
+     * split the lines out of a network stream that arrives in fragments:
+     *
+     * <pre>{@code
+     * Substring.Tokenizer lines = first("\r\n").repeatedly().tokenizer();
+     * while ((read = socket.read(buffer)) > 0) {
+     *   lines.feed(decode(buffer)).forEach(this::handleLine);
+     * }
+     * lines.finish().forEach(this::handleLine);
+     * }</pre>
+     *
+     * <p>The tokenizer remembers where it stopped, and retains only the input after the last match.
+     * So the total work is linear to the input size, instead of rescanning the accumulated input
+     * upon every chunk.
+     *
+     * <p>For a repeated {@link Substring#first(String)}, {@link Substring#first(char)} or {@link
+     * Substring#first(CharPredicate)} delimiter, each segment is emitted as soon as the delimiter
+     * following it is fed. Other forward-searching patterns emit a segment once the input
+     * following its delimiter can no longer change the delimiter (for example the next
+     * non-delimiter char of {@link Substring#consecutive}, or up to 8K chars for regex), though
+     * to keep the total work linear, a long segment may be held back until up to as many more
+     * characters are fed. Patterns whose matches may depend on the end of the input, such as
+     * {@link Pattern#or} or {@link Substring#last}, emit all segments upon {@link
+     * Tokenizer#finish}.
+     *
+     * @since 6.2
+     */
+    public Tokenizer tokenizer() {
+      StringBuilder builder = new StringBuilder();
+      return new Tokenizer() {
+        @Override void append(CharSequence chunk, List<String> segments) {
+          builder.append(chunk);
+        }
+
+        @Override void end(List<String> segments) {
+          split(builder).map(Match::toString).forEach(segments::add);
+        }
+      };
     }
 
     /**
@@ -1750,17 +2513,16 @@ public final class Substring {
      * be directly passed to {@code CharSequence}-accepting APIs such as {@code
      * com.google.common.base.CharMatcher.trimFrom()} and {@link Pattern#splitThenTrim} etc.
      */
-    public Stream<Match> split(String string) {
+    public Stream<Match> split(CharSequence string) {
       return MoreStreams.whileNotNull(
           new Supplier<Match>() {
             int next = 0;
-            Iterator<Match> it = match(string).iterator();
+            MatchCursor delimiters = scan(string);
 
             @Override public Match get() {
-              if (it.hasNext()) {
-                Match delim = it.next();
-                Match result = Match.nonBacktrackable(string, next, delim.index() - next);
-                next = delim.endIndex;
+              if (delimiters.next()) {
+                Match result = Match.nonBacktrackable(string, next, delimiters.index() - next);
+                next = delimiters.endIndex();
                 return result;
               }
               if (next >= 0) {
@@ -1774,6 +2536,40 @@ public final class Substring {
           });
     }
 
+    /** Equivalent to {@link #split(CharSequence)}. */
+    public Stream<Match> split(String string) {
+      return split((CharSequence) string);
+    }
+
+    /**
+     * Returns a stream of {@link ByteBuffer} slices of {@code bytes} delimited by every match of
+     * this pattern. If this pattern isn't found in {@code bytes}, a single slice of all the bytes is
+     * returned. For example:
+     *
+     * <pre>{@code
+     * try (FileChannel channel = FileChannel.open(path)) {
+     *   MappedByteBuffer bytes = channel.map(MapMode.READ_ONLY, 0, channel.size());
+     *   first('\n').repeatedly().split(bytes).forEach(this::processLine);
+     * }
+     * }</pre>
+     *
+     * <p>The bytes between {@code bytes.position()} and {@code bytes.limit()} are searched, with
+     * each byte interpreted as an ISO-8859-1 char. No byte is decoded or copied: the returned
+     * slices share content with {@code bytes}, and the caller may decode only the slices it needs.
+     * The position, limit and mark of {@code bytes} aren't modified.
+     *
+     * <p>This method is intended for delimiters that only match ASCII chars, such as {@code
+     * first('\n')} or {@code first("\r\n")}. Because no
+     * byte of a multi-byte UTF-8 sequence is in the ASCII range, such delimiters split UTF-8 (and
+     * any other ASCII-compatible) encoded content correctly.
+     *
+     * @since 6.2
+     */
+    public Stream<ByteBuffer> split(ByteBuffer bytes) {
+      Latin1CharSequence chars = new Latin1CharSequence(bytes);
+      return split(chars).map(match -> chars.slice(match.index(), match.length()));
+    }
+
     /**
      * Returns a stream of {@code Match} objects delimited by every match of this pattern. with
      * whitespaces trimmed.
@@ -1783,10 +2579,15 @@ public final class Substring {
      * be directly passed to {@code CharSequence}-accepting APIs such as {@code
      * com.google.common.base.CharMatcher.trimFrom()} and {@link Pattern#split} etc.
      */
-    public Stream<Match> splitThenTrim(String string) {
+    public Stream<Match> splitThenTrim(CharSequence string) {
       return split(string).map(Match::trim);
     }
 
+    /** Equivalent to {@link #splitThenTrim(CharSequence)}. */
+    public Stream<Match> splitThenTrim(String string) {
+      return splitThenTrim((CharSequence) string);
+    }
+
     /**
      * Returns a {@link BiStream} of key value pairs from {@code input}.
      *
@@ -1837,7 +2638,7 @@ public final class Substring {
      * @since 5.9
      */
     public final BiStream<String, String> splitKeyValuesAround(
-        Pattern keyValueSeparator, String input) {
+        Pattern keyValueSeparator, CharSequence input) {
       requireNonNull(keyValueSeparator);
       return BiStream.from(
           split(input)
@@ -1848,6 +2649,11 @@ public final class Substring {
                       () -> new IllegalArgumentException("Cannot split key values from '" + m + "'"))));
     }
 
+    /** Equivalent to {@link #splitKeyValuesAround(Pattern, CharSequence)}. */
+    public final BiStream<String, String> splitKeyValuesAround(Pattern keyValueSeparator, String input) {
+      return splitKeyValuesAround(keyValueSeparator, (CharSequence) input);
+    }
+
     /**
      * Returns a {@link BiStream} of key value pairs from {@code input}.
      *
@@ -1896,7 +2702,7 @@ public final class Substring {
      * @since 5.9
      */
     public final BiStream<String, String> splitThenTrimKeyValuesAround(
-        Pattern keyValueSeparator, String input) {
+        Pattern keyValueSeparator, CharSequence input) {
       requireNonNull(keyValueSeparator);
       return BiStream.from(
           splitThenTrim(input)
@@ -1907,6 +2713,94 @@ public final class Substring {
                       () -> new IllegalArgumentException("Cannot split key values from '" + m + "'"))));
     }
 
+    /** Equivalent to {@link #splitThenTrimKeyValuesAround(Pattern, CharSequence)}. */
+    public final BiStream<String, String> splitThenTrimKeyValuesAround(Pattern keyValueSeparator, String input) {
+      return splitThenTrimKeyValuesAround(keyValueSeparator, (CharSequence) input);
+    }
+
+    /**
+     * Splits {@code input} into key value pairs and passes each pair to {@code consumer}. The
+     * key-value pairs are delimited by this repeating pattern, with the key and value separated by
+     * {@code keyValueSeparator}. For example, to parse a query string into a map:
+     *
+     * <pre>{@code
+     * Map<String, String> params = new HashMap<>();
+     * first('&').repeatedly().splitKeyValuesAround(first('='), "k1=v1&k2=v2", params::put);
+     * }</pre>
+     *
+     * <p>Equivalent to {@code splitKeyValuesAround(keyValueSeparator, input).forEach(consumer)},
+     * but more efficient because the pairs are passed directly to {@code consumer} without
+     * going through a stream pipeline or creating a {@link java.util.Map.Entry} per pair.
+     *
+     * <p>Empty parts (including leading and trailing separator) are ignored. Non-empty parts where
+     * {@code keyValueSeparator} is absent will result in {@link IllegalArgumentException}.
+     *
+     * @since 6.2
+     */
+    public final void splitKeyValuesAround(
+        Pattern keyValueSeparator,
+        CharSequence input,
+        BiConsumer<? super String, ? super String> consumer) {
+      forEachKeyValue(keyValueSeparator, input, false, consumer);
+    }
+
+    /**
+     * Splits {@code input} into key value pairs with keys and values trimmed, and passes each pair
+     * to {@code consumer}. The key-value pairs are delimited by this repeating pattern, with the
+     * key and value separated by {@code keyValueSeparator}.
+     *
+     * <p>Equivalent to {@code splitThenTrimKeyValuesAround(keyValueSeparator, input)
+     * .forEach(consumer)}, but more efficient because the pairs are passed directly to {@code
+     * consumer} without going through a stream pipeline or creating a {@link java.util.Map.Entry}
+     * per pair.
+     *
+     * <p>Empty parts (including leading and trailing separator) are ignored. Non-empty parts where
+     * {@code keyValueSeparator} is absent will result in {@link IllegalArgumentException}.
+     *
+     * @since 6.2
+     */
+    public final void splitThenTrimKeyValuesAround(
+        Pattern keyValueSeparator,
+        CharSequence input,
+        BiConsumer<? super String, ? super String> consumer) {
+      forEachKeyValue(keyValueSeparator, input, true, consumer);
+    }
+
+    private void forEachKeyValue(
+        Pattern keyValueSeparator,
+        CharSequence input,
+        boolean trim,
+        BiConsumer<? super String, ? super String> consumer) {
+      requireNonNull(keyValueSeparator);
+      requireNonNull(consumer);
+      MatchCursor delimiters = scan(input);
+      for (int next = 0; next >= 0; ) {
+        Match part;
+        if (delimiters.next()) {
+          part = Match.nonBacktrackable(input, next, delimiters.index() - next);
+          next = delimiters.endIndex();
+        } else {
+          part = Match.nonBacktrackable(input, next, input.length() - next);
+          next = -1;
+        }
+        if (trim) {
+          part = part.trim();
+        }
+        if (part.length() == 0) {
+          continue;
+        }
+        Match keyValue = keyValueSeparator.match(part, 0);
+        if (keyValue == null) {
+          throw new IllegalArgumentException("Cannot split key values from '" + part + "'");
+        }
+        if (trim) {
+          consumer.accept(keyValue.before().trim(), keyValue.after().trim());
+        } else {
+          consumer.accept(keyValue.before(), keyValue.after());
+        }
+      }
+    }
+
     /**
      * Returns the alternation of this pattern from the {@code input} string, with the matched
      * substring alternated with the trailing substring before the next match.
@@ -1927,16 +2821,165 @@ public final class Substring {
      *
      * @since 6.1
      */
-    public final BiStream<String, String> alternationFrom(String input) {
+    public final BiStream<String, String> alternationFrom(CharSequence input) {
       return Stream.concat(match(input), Stream.of(END.in(input).get()))
           .collect(BiStream.toAdjacentPairs())
-          .mapValues((k, k2) -> input.substring(k.index() + k.length(), k2.index()))
+          .mapValues((k, k2) -> input.subSequence(k.endIndex(), k2.index()).toString())
           .mapKeys(Match::toString);
     }
 
+    /** Equivalent to {@link #alternationFrom(CharSequence)}. */
+    public final BiStream<String, String> alternationFrom(String input) {
+      return alternationFrom((CharSequence) input);
+    }
+
     RepeatingPattern() {}
   }
 
+  /**
+   * A mutable cursor over the successive matches of a {@link RepeatingPattern}, as returned by
+   * {@link RepeatingPattern#scan}.
+   *
+   * <p>Call {@link #next} to advance to the next match, and then {@link #index} and {@link
+   * #endIndex} to access the boundaries of the current match in the input string. No {@code String}
+   * is created for the matched substrings.
+   *
+   * <p>A {@code MatchCursor} isn't thread-safe and shouldn't be used after the loop that iterates
+   * through it.
+   *
+   * @since 6.2
+   */
+  public abstract static class MatchCursor {
+    private int index = -1;
+    private int endIndex = -1;
+
+    /**
+     * Advances to the next match. Returns false if there are no more matches, in which case the
+     * cursor is exhausted.
+     */
+    public final boolean next() {
+      if (advance()) {
+        return true;
+      }
+      setCurrent(-1, -1);
+      return false;
+    }
+
+    /** Returns the 0-based index of the current match in the input string. */
+    public final int index() {
+      checkCurrent();
+      return index;
+    }
+
+    /** Returns the index immediately after the end of the current match in the input string. */
+    public final int endIndex() {
+      checkCurrent();
+      return endIndex;
+    }
+
+    /** Returns the length of the current match. */
+    public final int length() {
+      checkCurrent();
+      return endIndex - index;
+    }
+
+    /**
+     * Advances to the next match and makes it current through {@link #setCurrent}. Returns false
+     * if there are no more matches.
+     */
+    boolean advance() {
+      Match match = nextMatch();
+      if (match == null) {
+        return false;
+      }
+      setCurrent(match.startIndex, match.endIndex);
+      return true;
+    }
+
+    /** Returns the next match, or null if there are no more matches. */
+    abstract Match nextMatch();
+
+    final void setCurrent(int index, int endIndex) {
+      this.index = index;
+      this.endIndex = endIndex;
+    }
+
+    final MatchCursor map(Function<? super Match, ? extends Match> mapper) {
+      MatchCursor base = this;
+      return new MatchCursor() {
+        @Override Match nextMatch() {
+          Match match = base.nextMatch();
+          return match == null ? null : mapper.apply(match);
+        }
+      };
+    }
+
+    final Stream<Match> stream() {
+      return MoreStreams.whileNotNull(this::nextMatch);
+    }
+
+    private void checkCurrent() {
+      if (index < 0) {
+        throw new IllegalStateException("No current match. Call next() first.");
+      }
+    }
+
+    MatchCursor() {}
+  }
+
+  /**
+   * Splits input that arrives in successive chunks, as returned by {@link
+   * RepeatingPattern#tokenizer}. Each call to {@link #feed} returns the segments completed by the
+   * chunk, and {@link #finish} returns the rest.
+   *
+   * <p>A {@code Tokenizer} isn't thread-safe.
+   *
+   * @since 6.2
+   */
+  public abstract static class Tokenizer {
+    private boolean finished;
+
+    /**
+     * Appends {@code chunk} to the input and returns the segments that are now complete, in
+     * encounter order. Returns an empty list if no segment has been completed by {@code chunk}.
+     *
+     * @throws IllegalStateException if {@link #finish} has already been called
+     */
+    public final List<String> feed(CharSequence chunk) {
+      requireNonNull(chunk);
+      checkNotFinished();
+      List<String> segments = new ArrayList<>();
+      append(chunk, segments);
+      return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * Signals the end of input, and returns the remaining segments, including the last segment
+     * after the last match (which is empty if the input ends with a match).
+     *
+     * @throws IllegalStateException if already called
+     */
+    public final List<String> finish() {
+      checkNotFinished();
+      finished = true;
+      List<String> segments = new ArrayList<>();
+      end(segments);
+      return Collections.unmodifiableList(segments);
+    }
+
+    abstract void append(CharSequence chunk, List<String> segments);
+
+    abstract void end(List<String> segments);
+
+    private void checkNotFinished() {
+      if (finished) {
+        throw new IllegalStateException("Tokenizer already finished.");
+      }
+    }
+
+    Tokenizer() {}
+  }
+
   /**
    * An immutable string prefix {@code Pattern} with extra utilities such as {@link
    * #addToIfAbsent(String)}, {@link #removeFrom(StringBuilder)}, {@link #isIn(CharSequence)} etc.
@@ -2069,8 +3112,8 @@ public final class Substring {
       return prefix;
     }
 
-    @Override Match match(String input, int fromIndex) {
-      return input.startsWith(prefix, fromIndex)
+    @Override Match match(CharSequence input, int fromIndex) {
+      return startsWith(input, prefix, fromIndex)
           ? Match.nonBacktrackable(input, fromIndex, prefix.length())
           : null;
     }
@@ -2210,9 +3253,9 @@ public final class Substring {
       return suffix;
     }
 
-    @Override Match match(String input, int fromIndex) {
+    @Override Match match(CharSequence input, int fromIndex) {
       int index = input.length() - suffix.length();
-      return index >= fromIndex && input.endsWith(suffix)
+      return index >= fromIndex && startsWith(input, suffix, index)
           ? Match.suffix(input, suffix.length())
           : null;
     }
@@ -2228,9 +3271,14 @@ public final class Substring {
    * to the original string. It's advisable to construct and use a {@code Match} object within the
    * scope of a method; holding onto a {@code Match} object has the same risk of leaking memory as
    * holding onto the string it was produced from.
+   *
+   * <p>If the pattern was matched against a {@link CharSequence} other than {@code String}, such as
+   * a {@code StringBuilder} or a {@code CharBuffer}, the {@code Match} is a view of that sequence,
+   * with substrings only copied out upon calling methods like {@link #toString}, {@link #before} or
+   * {@link #after}. The sequence shouldn't be modified while the {@code Match} is in use.
    */
   public static final class Match implements CharSequence {
-    private final String context;
+    private final CharSequence context;
     private final int startIndex;
     private final int endIndex;
 
@@ -2245,7 +3293,10 @@ public final class Substring {
     /** When the match fails lookahead or lookbehind conditions, use this index to backtrack. */
     private final int backtrackIndex;
 
-    private Match(String context, int startIndex, int length, int backtrackIndex, int repetitionStartIndex) {
+    /** The matched substring, computed on first {@link #toString} call. */
+    private String string;
+
+    private Match(CharSequence context, int startIndex, int length, int backtrackIndex, int repetitionStartIndex) {
       this.context = context;
       this.startIndex = startIndex;
       this.endIndex = startIndex + length;
@@ -2253,16 +3304,16 @@ public final class Substring {
       this.repetitionStartIndex = repetitionStartIndex;
     }
 
-    static Match suffix(String context, int length) {
+    static Match suffix(CharSequence context, int length) {
       return nonBacktrackable(context, context.length() - length, length);
     }
 
-    static Match backtrackable(int backtrackingOffset, String context, int fromIndex, int length) {
+    static Match backtrackable(int backtrackingOffset, CharSequence context, int fromIndex, int length) {
       return new Match(
           context, fromIndex, length, fromIndex + backtrackingOffset, fromIndex + max(1, length));
     }
 
-    static Match nonBacktrackable(String context, int fromIndex, int length) {
+    static Match nonBacktrackable(CharSequence context, int fromIndex, int length) {
       return new Match(context, fromIndex, length, Integer.MAX_VALUE, fromIndex + max(1, length));
     }
 
@@ -2279,7 +3330,7 @@ public final class Substring {
      * </pre>
      */
     public String before() {
-      return context.substring(0, startIndex);
+      return context.subSequence(0, startIndex).toString();
     }
 
     /**
@@ -2295,12 +3346,18 @@ public final class Substring {
      * </pre>
      */
     public String after() {
-      return context.substring(endIndex);
+      return context.subSequence(endIndex, context.length()).toString();
     }
 
-    /** Return the full string being matched against. */
+    /**
+     * Return the full string being matched against.
+     *
+     * <p>If the input was a {@link CharSequence} other than {@code String}, a copy of the entire
+     * input is made upon every call. To avoid copying a large input, use {@link #index} and {@link
+     * #endIndex} to locate the match in the original input instead.
+     */
     public String fullString() {
-      return context;
+      return context.toString();
     }
 
     /**
@@ -2378,13 +3435,54 @@ public final class Substring {
       return startIndex;
     }
 
+    /**
+     * Returns the 0-based index in {@link #fullString} immediately after this match. Equivalent to
+     * {@code index() + length()}.
+     *
+     * @since 6.2
+     */
+    public int endIndex() {
+      return endIndex;
+    }
+
+    /**
+     * Returns true if the matched substring has the same chars as {@code str}. Unlike {@code
+     * toString().equals(str)}, no string is created. For example, to dispatch on header names:
+     *
+     * <pre>{@code
+     * Match name = ...;
+     * if (name.contentEquals("Content-Type")) {
+     *   ...
+     * }
+     * }</pre>
+     *
+     * @since 6.2
+     */
+    public boolean contentEquals(CharSequence str) {
+      if (str.length() != length()) {
+        return false;
+      }
+      if (string != null) {
+        return string.contentEquals(str);
+      }
+      if (str instanceof String) {
+        return startsWith(context, (String) str, startIndex);
+      }
+      for (int i = 0; i < str.length(); i++) {
+        if (context.charAt(startIndex + i) != str.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     /**
      * Returns true if the match is immediately followed by the {@code lookahead} string. Note that
      * {@code isFollowedBy("")} is always true.
      */
 
     public boolean isFollowedBy(String lookahead) {
-      return context.startsWith(lookahead, endIndex);
+      return startsWith(context, lookahead, endIndex);
     }
 
     /**
@@ -2392,7 +3490,7 @@ public final class Substring {
      * isPrecededBy("")} is always true.
      */
     public boolean isPrecededBy(String lookbehind) {
-      return context.startsWith(lookbehind, startIndex - lookbehind.length());
+      return startsWith(context, lookbehind, startIndex - lookbehind.length());
     }
 
     /**
@@ -2451,9 +3549,20 @@ public final class Substring {
           context, startIndex + begin, end - begin, Integer.MAX_VALUE, repetitionStartIndex);
     }
 
-    /** Returns the matched substring. */
+    /**
+     * Returns the matched substring. The string is only created upon the first call and then
+     * cached.
+     */
     @Override public String toString() {
-      return context.substring(startIndex, endIndex);
+      String result = string;
+      if (result == null) {
+        string = result = context.subSequence(startIndex, endIndex).toString();
+      }
+      return result;
+    }
+
+    int repetitionStartIndex() {
+      return repetitionStartIndex;
     }
 
     Match following() {
@@ -2494,6 +3603,211 @@ public final class Substring {
     }
   }
 
+  /** An occurrence of one of the candidate patterns. */
+  private static final class Occurrence {
+    private final Pattern pattern;
+    final int candidateIndex;
+    final Match match;
+
+    Occurrence(Pattern pattern, Match match, int candidateIndex) {
+      this.pattern = pattern;
+      this.match = match;
+      this.candidateIndex = candidateIndex;
+    }
+
+    void enqueueNextOccurrence(CharSequence input, int fromIndex, Queue<Occurrence> queue) {
+      Match nextMatch = pattern.match(input, fromIndex);
+      if (nextMatch != null) {
+        queue.add(new Occurrence(pattern, nextMatch, candidateIndex));
+      }
+    }
+
+    @Override public String toString() {
+      return pattern + ": " + match.toString();
+    }
+  }
+
+  /**
+   * Iterates through the non-overlapping occurrences of a list of candidate patterns from left to
+   * right. If multiple candidates match at the same index, the first candidate in the list wins.
+   * Each candidate only rescans from where it has to, after it's been overtaken by another match.
+   */
+  /** Locates matches by index, without allocating a {@code Match} per hit. */
+  private interface MatchLocator {
+    /**
+     * Returns the index of the first match in {@code input} at or after {@code fromIndex} and
+     * stores the match's end index in {@code endIndex[0]}; or returns -1 if not found.
+     */
+    int locate(CharSequence input, int fromIndex, int[] endIndex);
+  }
+
+  private static final class Occurrences {
+    private static final Comparator<Occurrence> BY_INDEX =
+        comparingInt((Occurrence occurrence) -> occurrence.match.index())
+            .thenComparingInt(occurrence -> occurrence.candidateIndex);
+
+    private final CharSequence input;
+    private final PriorityQueue<Occurrence> queue;
+
+    Occurrences(List<Pattern> candidates, CharSequence input) {
+      this.input = input;
+      this.queue = new PriorityQueue<>(max(1, candidates.size()), BY_INDEX);
+      for (int i = 0; i < candidates.size(); i++) {
+        Pattern candidate = candidates.get(i);
+        Match match = candidate.match(input, 0);
+        if (match != null) {
+          queue.add(new Occurrence(candidate, match, i));
+        }
+      }
+    }
+
+    /** Returns the next occurrence, or null if there is no more. */
+    Occurrence next() {
+      final Occurrence occurrence = queue.poll();
+      if (occurrence == null) {
+        return null;
+      }
+      final Match match = occurrence.match;
+
+      // For allOccurrencesOf([before(first('/')), first('/')]) against input = "foo/bar",
+      // before(first('/')) will match the first occurrence of "foo".
+      // In the next iteration, we want to start *after* the '/' for the repetition
+      // of before(first('/')), yet start from the '/' for the other unmatched first('/').
+      // The expected result is [foo, /].
+      if (match.repetitionStartIndex <= input.length()) {
+        occurrence.enqueueNextOccurrence(input, match.repetitionStartIndex, queue);
+      }
+      for (final int waterMark = match.endIndex; ;) {
+        Occurrence nextInLine = queue.peek();
+        if (nextInLine == null || nextInLine.match.index() >= waterMark) {
+          return occurrence;
+        }
+        queue.remove().enqueueNextOccurrence(input, waterMark, queue);
+      }
+    }
+  }
+
+  /**
+   * If {@code candidates} are all non-empty plain literals, returns a trie that indexes them by
+   * their leading chars so they can be searched for in a single pass, instead of rescanning the
+   * input once per candidate. Otherwise returns null.
+   */
+  private static LiteralTrie literalTrie(List<Pattern> candidates) {
+    if (candidates.size() < 2) {
+      return null;
+    }
+    List<String> literals = new ArrayList<>(candidates.size());
+    for (Pattern candidate : candidates) {
+      String literal = candidate.literal();
+      if (literal == null || literal.isEmpty()) {
+        return null;
+      }
+      literals.add(literal);
+    }
+    return new LiteralTrie(literals);
+  }
+
+  /** Reverses the chars of {@code str}, without keeping surrogate pairs in order. */
+  private static String reverse(String str) {
+    char[] chars = new char[str.length()];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = str.charAt(chars.length - 1 - i);
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Returns the lookahead needed by a pattern that backtracks over the matches of {@code target},
+   * inspecting up to {@code inspected} chars after each. A rejected match of {@code target} may
+   * end up to {@code target.incrementalMatchLength()} chars after the accepted match.
+   */
+  private static int boundedLookahead(Pattern target, int inspected) {
+    int maxLength = target.incrementalMatchLength();
+    return maxLength < 0 || target.lookahead() < 0
+        ? -1
+        : target.lookahead() + maxLength + inspected;
+  }
+
+  private static int read(Reader reader, char[] buffer) {
+    try {
+      return reader.read(buffer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static int indexOf(CharSequence input, char ch, int fromIndex) {
+    if (input instanceof String) {
+      return ((String) input).indexOf(ch, fromIndex);
+    }
+    if (input instanceof Latin1CharSequence) {
+      return ((Latin1CharSequence) input).indexOf(ch, fromIndex);
+    }
+    for (int i = max(0, fromIndex); i < input.length(); i++) {
+      if (input.charAt(i) == ch) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int indexOf(CharSequence input, String str, int fromIndex) {
+    if (input instanceof String) {
+      return ((String) input).indexOf(str, fromIndex);
+    }
+    if (str.isEmpty()) {
+      return fromIndex <= input.length() ? max(0, fromIndex) : -1;
+    }
+    // Skip to the candidates starting with the first char, which indexOf(char) may vectorize.
+    for (int i = indexOf(input, str.charAt(0), fromIndex), last = input.length() - str.length();
+        i >= 0 && i <= last;
+        i = indexOf(input, str.charAt(0), i + 1)) {
+      if (startsWith(input, str, i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int lastIndexOf(CharSequence input, char ch) {
+    if (input instanceof String) {
+      return ((String) input).lastIndexOf(ch);
+    }
+    for (int i = input.length() - 1; i >= 0; i--) {
+      if (input.charAt(i) == ch) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int lastIndexOf(CharSequence input, String str) {
+    if (input instanceof String) {
+      return ((String) input).lastIndexOf(str);
+    }
+    for (int i = input.length() - str.length(); i >= 0; i--) {
+      if (startsWith(input, str, i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean startsWith(CharSequence input, String prefix, int offset) {
+    if (input instanceof String) {
+      return ((String) input).startsWith(prefix, offset);
+    }
+    if (offset < 0 || offset > input.length() - prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (input.charAt(offset + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private static int checkNumChars(int maxChars) {
     if (maxChars < 0) {
       throw new IllegalArgumentException("Number of characters (" + maxChars + ") cannot be negative.");
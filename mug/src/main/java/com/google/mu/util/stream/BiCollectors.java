@@ -450,6 +450,34 @@ public final class BiCollectors {
     };
   }
 
+  /**
+   * Groups input pairs by {@code classifier} and reduces values belonging to the same group using
+   * {@code groupReducer}, with no more than a bounded number of groups in memory as configured by
+   * {@code spilling}. The other groups are spilled to disk as sorted runs, which are merged while
+   * the result {@code BiStream} is read.
+   *
+   * <p>Unlike {@link #groupingBy(Function, BinaryOperator)}, the groups are in the key order of
+   * {@code spilling}. The result {@code BiStream} should be closed if it's not exhausted, so as to
+   * delete the temp files.
+   *
+   * @since 6.2
+   */
+  public static <K, V, G> BiCollector<K, V, BiStream<G, V>> groupingBy(
+      Function<? super K, ? extends G> classifier,
+      BinaryOperator<V> groupReducer,
+      ExternalGrouping<G, V> spilling) {
+    requireNonNull(classifier);
+    requireNonNull(groupReducer);
+    requireNonNull(spilling);
+    return new BiCollector<K, V, BiStream<G, V>>() {
+      @Override
+      public <E> Collector<E, ?, BiStream<G, V>> splitting(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        return BiStream.groupingBy(toKey.andThen(classifier), toValue, groupReducer, spilling);
+      }
+    };
+  }
+
   /**
    * Returns a {@link BiCollector} that maps the result of {@code upstream} collector using
    * {@code finisher}.
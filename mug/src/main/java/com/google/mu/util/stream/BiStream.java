@@ -17,6 +17,8 @@ package com.google.mu.util.stream;
 import static com.google.mu.util.stream.MoreStreams.collectingAndThen;
 import static java.util.Objects.requireNonNull;
 import static java.util.Spliterator.ORDERED;
+import static java.util.Spliterator.SIZED;
+import static java.util.Spliterator.SUBSIZED;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.collectingAndThen;
 import static java.util.stream.Collectors.toList;
@@ -26,13 +28,19 @@ import static java.util.stream.StreamSupport.longStream;
 import static java.util.stream.StreamSupport.stream;
 
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators.AbstractDoubleSpliterator;
 import java.util.Spliterators.AbstractIntSpliterator;
@@ -46,6 +54,7 @@ import java.util.function.Consumer;
 import java.util.function.DoubleConsumer;
 import java.util.function.Function;
 import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
 import java.util.function.LongConsumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -168,6 +177,34 @@ public abstract class BiStream<K, V> implements AutoCloseable {
     return groupingBy(classifier, Collectors.mapping(mapper, reducingGroupMembers(reducer)));
   }
 
+  /**
+   * Returns a {@code Collector} that groups the input elements by {@code classifier} and reduces
+   * the values mapping to the same key using {@code mapper} then {@code reducer}, with no more
+   * than a bounded number of groups in memory as configured by {@code spilling}. The other groups
+   * are spilled to disk as sorted runs, which are merged while the result {@code BiStream} is
+   * read. For example:
+   *
+   * <pre>{@code
+   * try (BiStream<AccountId, Money> balances = transactions
+   *     .collect(groupingBy(Txn::accountId, Txn::amount, Money::add, spilling))) {
+   *   ...
+   * }
+   * }</pre>
+   *
+   * <p>Unlike {@link #groupingBy(Function, Function, BinaryOperator)}, entries are collected in
+   * the key order of {@code spilling}. The result {@code BiStream} should be closed if it's not
+   * exhausted, so as to delete the temp files.
+   *
+   * @since 6.2
+   */
+  public static <T, K, V> Collector<T, ?, BiStream<K, V>> groupingBy(
+      Function<? super T, ? extends K> classifier,
+      Function<? super T, ? extends V> mapper,
+      BinaryOperator<V> reducer,
+      ExternalGrouping<K, V> spilling) {
+    return spilling.groupingBy(classifier, mapper, reducer);
+  }
+
   /**
    * Returns a {@code Collector} that groups the input elements by {@code classifier} and collects
    * the values mapping to the same key into a {@link List}. Similar but different from
@@ -622,9 +659,25 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    * <p>The resulting stream will only be as long as the shorter of the two iterables; if one is
    * longer, its extra elements will be ignored.
    *
+   * <p>If both {@code left} and {@code right} are {@link RandomAccess} lists, the pairs are looked
+   * up by index. The streams derived from the result, as in {@code zip(left, right).mapToObj(...)},
+   * are then sized, and can be efficiently split to run in parallel.
+   *
    * @since 3.0
    */
   public static <L, R> BiStream<L, R> zip(Collection<L> left, Collection<R> right) {
+    if (left instanceof RandomAccess && left instanceof List
+        && right instanceof RandomAccess && right instanceof List) {
+      List<L> leftList = (List<L>) left;
+      List<R> rightList = (List<R>) right;
+      return new IndexedStream<>(
+          intStream(
+              () -> IntStream.range(0, Math.min(leftList.size(), rightList.size())).spliterator(),
+              ORDERED | SIZED | SUBSIZED,
+              NOT_PARALLEL),
+          leftList::get,
+          rightList::get);
+    }
     return zip(left.stream(), right.stream());
   }
 
@@ -924,6 +977,10 @@ public abstract class BiStream<K, V> implements AutoCloseable {
       @Override Stream<E> mapToEntry() { // Reuse the same Entry objects. Don't allocate new ones
         return entryStream;
       }
+
+      @Override boolean iteratesWithoutEntries() { // mapToEntry() is free and can be parallel
+        return false;
+      }
     };
   }
 
@@ -1304,6 +1361,9 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    */
   public final BiStream<K, V> peek(BiConsumer<? super K, ? super V> action) {
     requireNonNull(action);
+    if (iteratesWithoutEntries()) {
+      return iterating(() -> IteratingStream.peeking(iterator(), action));
+    }
     return fromEntries(mapToEntry().peek(e -> action.accept(e.getKey(), e.getValue())));
   }
 
@@ -1315,6 +1375,9 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    */
   public final BiStream<K, V> filter(BiPredicate<? super K, ? super V> predicate) {
     requireNonNull(predicate);
+    if (iteratesWithoutEntries()) {
+      return iterating(() -> IteratingStream.filtering(iterator(), predicate));
+    }
     return fromEntries(mapToEntry().filter(kv -> predicate.test(kv.getKey(), kv.getValue())));
   }
 
@@ -1486,6 +1549,9 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    * Object.equals(Object)} for both key and value).
    */
   public final BiStream<K, V> distinct() {
+    if (iteratesWithoutEntries()) {
+      return iterating(() -> IteratingStream.distinct(iterator()));
+    }
     return fromEntries(mapToEntry().distinct());
   }
 
@@ -1495,6 +1561,9 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    */
   public final BiStream<K, V> sortedByKeys(Comparator<? super K> comparator) {
     requireNonNull(comparator);
+    if (iteratesWithoutEntries()) {
+      return sorted((k1, v1, k2, v2) -> comparator.compare(k1, k2));
+    }
     return fromEntries(mapToEntry().sorted(Comparator.comparing(Map.Entry::getKey, comparator)));
   }
 
@@ -1504,6 +1573,9 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    */
   public final BiStream<K, V> sortedByValues(Comparator<? super V> comparator) {
     requireNonNull(comparator);
+    if (iteratesWithoutEntries()) {
+      return sorted((k1, v1, k2, v2) -> comparator.compare(v1, v2));
+    }
     return fromEntries(mapToEntry().sorted(Comparator.comparing(Map.Entry::getValue, comparator)));
   }
 
@@ -1528,9 +1600,97 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    * @since 4.7
    */
   public final BiStream<K, V> sorted(BiComparator<? super K, ? super V> ordering) {
+    requireNonNull(ordering);
+    if (iteratesWithoutEntries()) {
+      return iterating(() -> IteratingStream.sorting(iterator(), ordering));
+    }
     return fromEntries(mapToEntry().sorted(ordering.asComparator(Map.Entry::getKey, Map.Entry::getValue)));
   }
 
+  /**
+   * Returns a {@code BiStream} of the pairs in this stream joined with the pairs in {@code other}
+   * that have equal keys. For each pair {@code (k, v1)} in this stream, and each pair {@code (k,
+   * v2)} in {@code other}, the result contains the pair {@code (k, Both.of(v1, v2))}. For example:
+   *
+   * <pre>{@code
+   * BiStream.from(employeesById)
+   *     .innerJoin(BiStream.from(salariesByEmployeeId))
+   *     .mapToObj((id, both) -> both.andThen(Payslip::new))
+   *     ...;
+   * }</pre>
+   *
+   * <p>{@code other} is eagerly consumed (and closed) into a hash table when this method is
+   * called, even if the returned stream is never used, so it should be the smaller of the two
+   * sides. This stream is then probed against the hash table lazily and sequentially, with the
+   * result in the encounter order of this stream, and the values of each key in the encounter order
+   * of {@code other}.
+   *
+   * @since 6.2
+   */
+  public final <V2> BiStream<K, Both<V, V2>> innerJoin(BiStream<? extends K, ? extends V2> other) {
+    Map<Object, List<V2>> table = hashTable(other);
+    return iterating(() -> IteratingStream.hashJoining(iterator(), table, false));
+  }
+
+  /**
+   * Returns a {@code BiStream} of the pairs in this stream joined with the pairs in {@code other}
+   * that have equal keys. Similar to {@link #innerJoin}, except that for each pair {@code (k, v1)}
+   * in this stream with no pair of key {@code k} in {@code other}, the result contains the pair
+   * {@code (k, Both.of(v1, null))}.
+   *
+   * <p>{@code other} is eagerly consumed (and closed) into a hash table when this method is
+   * called, even if the returned stream is never used, so it should be the smaller of the two
+   * sides. This stream is then probed against the hash table lazily and sequentially.
+   *
+   * @since 6.2
+   */
+  public final <V2> BiStream<K, Both<V, V2>> leftJoin(BiStream<? extends K, ? extends V2> other) {
+    Map<Object, List<V2>> table = hashTable(other);
+    return iterating(() -> IteratingStream.hashJoining(iterator(), table, true));
+  }
+
+  /**
+   * Returns a {@code BiStream} of the pairs in this stream joined with the pairs in {@code other}
+   * that have equal keys according to {@code keyOrder}, given that both this stream and {@code
+   * other} are already sorted by their keys in {@code keyOrder}. The result is the same as {@link
+   * #innerJoin}, but computed by merging the two streams lazily and sequentially, with only the
+   * values of the current key from {@code other} kept in memory. For example:
+   *
+   * <pre>{@code
+   * BiStream.from(readSortedLog(todayFile), Entry::accountId, Entry::amount)
+   *     .mergeJoin(BiStream.from(readSortedLog(yesterdayFile), ...), naturalOrder())
+   *     ...;
+   * }</pre>
+   *
+   * <p>Closing the returned stream closes both this stream and {@code other}.
+   *
+   * @throws IllegalArgumentException upon encountering keys out of {@code keyOrder} in either
+   *     stream
+   * @since 6.2
+   */
+  public final <V2> BiStream<K, Both<V, V2>> mergeJoin(
+      BiStream<? extends K, ? extends V2> other, Comparator<? super K> keyOrder) {
+    requireNonNull(other);
+    requireNonNull(keyOrder);
+    return new IteratingStream<>(
+        () -> IteratingStream.mergeJoining(iterator(), other.iterator(), keyOrder),
+        () -> {
+          try {
+            close();
+          } finally {
+            other.close();
+          }
+        });
+  }
+
+  private static <K, V> Map<Object, List<V>> hashTable(BiStream<? extends K, ? extends V> stream) {
+    Map<Object, List<V>> table = new HashMap<>();
+    try (BiStream<? extends K, ? extends V> closing = stream) {
+      closing.forEachOrdered((k, v) -> table.computeIfAbsent(k, x -> new ArrayList<>(1)).add(v));
+    }
+    return table;
+  }
+
   /** Returns the count of pairs in this stream. */
   public final long count() {
     return keys().count();
@@ -1637,6 +1797,21 @@ public abstract class BiStream<K, V> implements AutoCloseable {
   /** Returns a BiIterator for callers to iterate through the pairs in this stream in encounter order. */
   abstract BiIterator<K, V> iterator();
 
+  /**
+   * Returns true if this stream is sequential and {@link #iterator} can pull the pairs without
+   * allocating a {@code Map.Entry} per pair. Operations such as {@link #filter} and {@link
+   * #sortedByKeys} then pull pairs through the iterator instead of going through {@link
+   * #mapToEntry}.
+   */
+  boolean iteratesWithoutEntries() {
+    return false;
+  }
+
+  /** Returns a stream of the pairs from the iterator lazily created by {@code source}. */
+  private <K2, V2> BiStream<K2, V2> iterating(Supplier<? extends BiIterator<K2, V2>> source) {
+    return new IteratingStream<>(source, this::close);
+  }
+
   /**
    * Returns a {@code BiStream} consisting of consecutive groupings from this stream. Consecutive
    * pairs whose key maps to the same group according to {@code classifier} will have their values
@@ -1978,9 +2153,10 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    *
    * <p>Doing so isn't always feasible. For example {@link #filter} and {@link #peek} both need to
    * evaluate the entry by invoking {@code toKey} and {@code toValue} and the return values need to
-   * be stored to avoid invoking the functions again. For these cases, the stream will be
-   * degeneralized into {@code Stream<Map.Entry<K, V>>} so as to guarantee the "at-most-once"
-   * semantic.
+   * be stored to avoid invoking the functions again. For these cases, a sequential stream pulls
+   * the pairs one at a time through {@link #iterator}, holding the current key and value in a
+   * reusable {@link TempPair}; while a parallel stream is degeneralized into {@code
+   * Stream<Map.Entry<K, V>>}. Either way the "at-most-once" semantic is guaranteed.
    */
   private static class GenericEntryStream<E, K, V> extends BiStream<K, V> {
     private final Stream<E> underlying;
@@ -2071,6 +2247,10 @@ public abstract class BiStream<K, V> implements AutoCloseable {
       underlying.close();
     }
 
+    @Override boolean iteratesWithoutEntries() {
+      return !underlying.isParallel();
+    }
+
     @Override public final BiIterator<K, V> iterator() {
       Spliterator<E> spliterator = underlying.spliterator();
       Temp<E> temp = new Temp<>();
@@ -2196,6 +2376,10 @@ public abstract class BiStream<K, V> implements AutoCloseable {
       };
     }
 
+    @Override boolean iteratesWithoutEntries() {
+      return true;
+    }
+
     private final class Spliteration {
       private final Temp<K> currentLeft = new Temp<>();
       private final Temp<V> currentRight = new Temp<>();
@@ -2300,6 +2484,595 @@ public abstract class BiStream<K, V> implements AutoCloseable {
     }
   }
 
+  /**
+   * An implementation that computes each pair from its index, for example by looking up two
+   * random access lists. Because {@code IntStream.range()} is sized and evenly splittable, the
+   * derived streams such as {@link #mapToObj} can be split at the same index for both the keys and
+   * the values, and run efficiently in parallel.
+   */
+  private static final class IndexedStream<K, V> extends BiStream<K, V> {
+    private final IntStream indexes;
+    private final IntFunction<? extends K> toKey;
+    private final IntFunction<? extends V> toValue;
+
+    IndexedStream(
+        IntStream indexes, IntFunction<? extends K> toKey, IntFunction<? extends V> toValue) {
+      this.indexes = requireNonNull(indexes);
+      this.toKey = requireNonNull(toKey);
+      this.toValue = requireNonNull(toValue);
+    }
+
+    @Override public <T> Stream<T> mapToObj(BiFunction<? super K, ? super V, ? extends T> mapper) {
+      requireNonNull(mapper);
+      return indexes.mapToObj(i -> mapper.apply(toKey.apply(i), toValue.apply(i)));
+    }
+
+    @Override public DoubleStream mapToDouble(ToDoubleBiFunction<? super K, ? super V> mapper) {
+      requireNonNull(mapper);
+      return indexes.mapToDouble(i -> mapper.applyAsDouble(toKey.apply(i), toValue.apply(i)));
+    }
+
+    @Override public IntStream mapToInt(ToIntBiFunction<? super K, ? super V> mapper) {
+      requireNonNull(mapper);
+      return indexes.map(i -> mapper.applyAsInt(toKey.apply(i), toValue.apply(i)));
+    }
+
+    @Override public LongStream mapToLong(ToLongBiFunction<? super K, ? super V> mapper) {
+      requireNonNull(mapper);
+      return indexes.mapToLong(i -> mapper.applyAsLong(toKey.apply(i), toValue.apply(i)));
+    }
+
+    @Override public <K2> BiStream<K2, V> mapKeys(Function<? super K, ? extends K2> keyMapper) {
+      requireNonNull(keyMapper);
+      return new IndexedStream<>(indexes, i -> keyMapper.apply(toKey.apply(i)), toValue);
+    }
+
+    @Override public <V2> BiStream<K, V2> mapValues(Function<? super V, ? extends V2> valueMapper) {
+      requireNonNull(valueMapper);
+      return new IndexedStream<>(indexes, toKey, i -> valueMapper.apply(toValue.apply(i)));
+    }
+
+    @Override public BiStream<V, K> inverse() {
+      return new IndexedStream<>(indexes, toValue, toKey);
+    }
+
+    @Override public void forEach(BiConsumer<? super K, ? super V> action) {
+      requireNonNull(action);
+      indexes.forEach(i -> action.accept(toKey.apply(i), toValue.apply(i)));
+    }
+
+    @Override public void forEachOrdered(BiConsumer<? super K, ? super V> action) {
+      requireNonNull(action);
+      indexes.forEachOrdered(i -> action.accept(toKey.apply(i), toValue.apply(i)));
+    }
+
+    @Override public boolean allMatch(BiPredicate<? super K, ? super V> predicate) {
+      requireNonNull(predicate);
+      return indexes.allMatch(i -> predicate.test(toKey.apply(i), toValue.apply(i)));
+    }
+
+    @Override public boolean anyMatch(BiPredicate<? super K, ? super V> predicate) {
+      requireNonNull(predicate);
+      return indexes.anyMatch(i -> predicate.test(toKey.apply(i), toValue.apply(i)));
+    }
+
+    @Override public BiStream<K, V> limit(int maxSize) {
+      return new IndexedStream<>(indexes.limit(maxSize), toKey, toValue);
+    }
+
+    @Override public BiStream<K, V> skip(int n) {
+      return new IndexedStream<>(indexes.skip(n), toKey, toValue);
+    }
+
+    @Override public <R> R collect(BiCollector<? super K, ? super V, R> collector) {
+      requireNonNull(collector);
+      int[] index = new int[1];
+      return collectWith(
+          index,
+          collector.splitting(x -> toKey.apply(index[0]), x -> toValue.apply(index[0])));
+    }
+
+    /** {@code collector} internally reads from {@code index}. */
+    private <A, R> R collectWith(int[] index, Collector<Void, A, R> collector) {
+      Spliterator.OfInt spliterator = indexes.spliterator();
+      IntConsumer setIndex = i -> index[0] = i;
+      A container = collector.supplier().get();
+      BiConsumer<A, Void> accumulator = collector.accumulator();
+      while (spliterator.tryAdvance(setIndex)) {
+        accumulator.accept(container, null);
+      }
+      return collector.finisher().apply(container);
+    }
+
+    @Override public <A> A collect(
+        A container, BiAccumulator<? super A, ? super K, ? super V> accumulator) {
+      requireNonNull(accumulator);
+      indexes
+          .sequential()
+          .forEachOrdered(i -> accumulator.accumulate(container, toKey.apply(i), toValue.apply(i)));
+      return container;
+    }
+
+    @Override public void close() {
+      indexes.close();
+    }
+
+    @Override BiIterator<K, V> iterator() {
+      Spliterator.OfInt spliterator = indexes.spliterator();
+      int[] index = new int[1];
+      IntConsumer setIndex = i -> index[0] = i;
+      return consumer -> {
+        boolean advanced = spliterator.tryAdvance(setIndex);
+        if (advanced) {
+          consumer.accept(toKey.apply(index[0]), toValue.apply(index[0]));
+        }
+        return advanced;
+      };
+    }
+
+    @Override boolean iteratesWithoutEntries() {
+      return !indexes.isParallel();
+    }
+  }
+
+  /**
+   * A sequential stream that pulls the pairs from a {@link BiIterator} created upon the first
+   * terminal operation. Intermediary operations wrap the iterator, with the current pair held in
+   * a reusable {@link TempPair}, so that no {@code Map.Entry} is allocated per pair.
+   */
+  private static final class IteratingStream<K, V> extends BiStream<K, V> {
+    private final Supplier<? extends BiIterator<K, V>> source;
+    private final Runnable closeHandler;
+
+    IteratingStream(Supplier<? extends BiIterator<K, V>> source, Runnable closeHandler) {
+      this.source = requireNonNull(source);
+      this.closeHandler = requireNonNull(closeHandler);
+    }
+
+    @Override public <T> Stream<T> mapToObj(BiFunction<? super K, ? super V, ? extends T> mapper) {
+      requireNonNull(mapper);
+      return stream(
+              () -> {
+                BiIterator<K, V> iterator = source.get();
+                TempPair<K, V> pair = new TempPair<>();
+                return new AbstractSpliterator<T>(Long.MAX_VALUE, ORDERED) {
+                  @Override public boolean tryAdvance(Consumer<? super T> consumer) {
+                    if (!iterator.tryAdvance(pair)) {
+                      return false;
+                    }
+                    consumer.accept(mapper.apply(pair.key, pair.value));
+                    return true;
+                  }
+                };
+              },
+              ORDERED,
+              NOT_PARALLEL)
+          .onClose(closeHandler);
+    }
+
+    @Override public DoubleStream mapToDouble(ToDoubleBiFunction<? super K, ? super V> mapper) {
+      requireNonNull(mapper);
+      return doubleStream(
+              () -> {
+                BiIterator<K, V> iterator = source.get();
+                TempPair<K, V> pair = new TempPair<>();
+                return new AbstractDoubleSpliterator(Long.MAX_VALUE, ORDERED) {
+                  @Override public boolean tryAdvance(DoubleConsumer consumer) {
+                    if (!iterator.tryAdvance(pair)) {
+                      return false;
+                    }
+                    consumer.accept(mapper.applyAsDouble(pair.key, pair.value));
+                    return true;
+                  }
+                };
+              },
+              ORDERED,
+              NOT_PARALLEL)
+          .onClose(closeHandler);
+    }
+
+    @Override public IntStream mapToInt(ToIntBiFunction<? super K, ? super V> mapper) {
+      requireNonNull(mapper);
+      return intStream(
+              () -> {
+                BiIterator<K, V> iterator = source.get();
+                TempPair<K, V> pair = new TempPair<>();
+                return new AbstractIntSpliterator(Long.MAX_VALUE, ORDERED) {
+                  @Override public boolean tryAdvance(IntConsumer consumer) {
+                    if (!iterator.tryAdvance(pair)) {
+                      return false;
+                    }
+                    consumer.accept(mapper.applyAsInt(pair.key, pair.value));
+                    return true;
+                  }
+                };
+              },
+              ORDERED,
+              NOT_PARALLEL)
+          .onClose(closeHandler);
+    }
+
+    @Override public LongStream mapToLong(ToLongBiFunction<? super K, ? super V> mapper) {
+      requireNonNull(mapper);
+      return longStream(
+              () -> {
+                BiIterator<K, V> iterator = source.get();
+                TempPair<K, V> pair = new TempPair<>();
+                return new AbstractLongSpliterator(Long.MAX_VALUE, ORDERED) {
+                  @Override public boolean tryAdvance(LongConsumer consumer) {
+                    if (!iterator.tryAdvance(pair)) {
+                      return false;
+                    }
+                    consumer.accept(mapper.applyAsLong(pair.key, pair.value));
+                    return true;
+                  }
+                };
+              },
+              ORDERED,
+              NOT_PARALLEL)
+          .onClose(closeHandler);
+    }
+
+    @Override public <K2, V2> BiStream<K2, V2> map(
+        BiFunction<? super K, ? super V, ? extends K2> keyMapper,
+        BiFunction<? super K, ? super V, ? extends V2> valueMapper) {
+      requireNonNull(keyMapper);
+      requireNonNull(valueMapper);
+      return new IteratingStream<>(
+          () -> {
+            BiIterator<K, V> iterator = source.get();
+            TempPair<K, V> pair = new TempPair<>();
+            return consumer -> {
+              if (!iterator.tryAdvance(pair)) {
+                return false;
+              }
+              consumer.accept(
+                  keyMapper.apply(pair.key, pair.value), valueMapper.apply(pair.key, pair.value));
+              return true;
+            };
+          },
+          closeHandler);
+    }
+
+    @Override public <K2> BiStream<K2, V> mapKeys(Function<? super K, ? extends K2> keyMapper) {
+      requireNonNull(keyMapper);
+      return map((k, v) -> keyMapper.apply(k), (k, v) -> v);
+    }
+
+    @Override public <V2> BiStream<K, V2> mapValues(Function<? super V, ? extends V2> valueMapper) {
+      requireNonNull(valueMapper);
+      return map((k, v) -> k, (k, v) -> valueMapper.apply(v));
+    }
+
+    @Override public BiStream<V, K> inverse() {
+      return map((k, v) -> v, (k, v) -> k);
+    }
+
+    @Override public void forEach(BiConsumer<? super K, ? super V> action) {
+      forEachOrdered(action);
+    }
+
+    @Override public void forEachOrdered(BiConsumer<? super K, ? super V> action) {
+      requireNonNull(action);
+      BiIterator<K, V> iterator = source.get();
+      while (iterator.tryAdvance(action)) {}
+    }
+
+    @Override public boolean allMatch(BiPredicate<? super K, ? super V> predicate) {
+      requireNonNull(predicate);
+      return !anyMatch(predicate.negate());
+    }
+
+    @Override public boolean anyMatch(BiPredicate<? super K, ? super V> predicate) {
+      requireNonNull(predicate);
+      return filtering(source.get(), predicate).tryAdvance((k, v) -> {});
+    }
+
+    @Override public BiStream<K, V> limit(int maxSize) {
+      if (maxSize < 0) {
+        throw new IllegalArgumentException("maxSize cannot be negative: " + maxSize);
+      }
+      return new IteratingStream<>(
+          () -> {
+            BiIterator<K, V> iterator = source.get();
+            int[] remaining = {maxSize};
+            return consumer -> {
+              if (remaining[0] <= 0) {
+                return false;
+              }
+              remaining[0]--;
+              return iterator.tryAdvance(consumer);
+            };
+          },
+          closeHandler);
+    }
+
+    @Override public BiStream<K, V> skip(int n) {
+      if (n < 0) {
+        throw new IllegalArgumentException("n cannot be negative: " + n);
+      }
+      return new IteratingStream<>(
+          () -> {
+            BiIterator<K, V> iterator = source.get();
+            TempPair<K, V> skipped = new TempPair<>();
+            for (int i = 0; i < n && iterator.tryAdvance(skipped); i++) {}
+            return iterator;
+          },
+          closeHandler);
+    }
+
+    @Override public <R> R collect(BiCollector<? super K, ? super V, R> collector) {
+      requireNonNull(collector);
+      TempPair<K, V> pair = new TempPair<>();
+      return collectWith(pair, collector.splitting(x -> pair.key, x -> pair.value));
+    }
+
+    /** {@code collector} internally reads from {@code pair}. */
+    private <A, R> R collectWith(TempPair<K, V> pair, Collector<Void, A, R> collector) {
+      BiIterator<K, V> iterator = source.get();
+      A container = collector.supplier().get();
+      BiConsumer<A, Void> accumulator = collector.accumulator();
+      while (iterator.tryAdvance(pair)) {
+        accumulator.accept(container, null);
+      }
+      return collector.finisher().apply(container);
+    }
+
+    @Override public <A> A collect(
+        A container, BiAccumulator<? super A, ? super K, ? super V> accumulator) {
+      forEachOrdered(accumulator.into(container));
+      return container;
+    }
+
+    @Override public void close() {
+      closeHandler.run();
+    }
+
+    @Override BiIterator<K, V> iterator() {
+      return source.get();
+    }
+
+    @Override boolean iteratesWithoutEntries() {
+      return true;
+    }
+
+    static <K, V> BiIterator<K, V> filtering(
+        BiIterator<K, V> iterator, BiPredicate<? super K, ? super V> predicate) {
+      TempPair<K, V> pair = new TempPair<>();
+      return consumer -> {
+        while (iterator.tryAdvance(pair)) {
+          if (predicate.test(pair.key, pair.value)) {
+            consumer.accept(pair.key, pair.value);
+            return true;
+          }
+        }
+        return false;
+      };
+    }
+
+    static <K, V> BiIterator<K, V> peeking(
+        BiIterator<K, V> iterator, BiConsumer<? super K, ? super V> action) {
+      TempPair<K, V> pair = new TempPair<>();
+      return consumer -> {
+        if (!iterator.tryAdvance(pair)) {
+          return false;
+        }
+        action.accept(pair.key, pair.value);
+        consumer.accept(pair.key, pair.value);
+        return true;
+      };
+    }
+
+    /**
+     * Probes each pair from {@code iterator} against {@code table}. If {@code outer} is true, the
+     * pairs with no match are included with a null value from the other side.
+     */
+    static <K, V, V2> BiIterator<K, Both<V, V2>> hashJoining(
+        BiIterator<K, V> iterator, Map<?, ? extends List<? extends V2>> table, boolean outer) {
+      TempPair<K, V> pair = new TempPair<>();
+      return new BiIterator<K, Both<V, V2>>() {
+        private List<? extends V2> matches = Collections.emptyList();
+        private int next = 0;
+
+        @Override public boolean tryAdvance(BiConsumer<? super K, ? super Both<V, V2>> consumer) {
+          while (next >= matches.size()) {
+            if (!iterator.tryAdvance(pair)) {
+              return false;
+            }
+            List<? extends V2> found = table.get(pair.key);
+            if (found != null) {
+              matches = found;
+              next = 0;
+            } else if (outer) {
+              consumer.accept(pair.key, Both.of(pair.value, null));
+              return true;
+            }
+          }
+          consumer.accept(pair.key, Both.of(pair.value, matches.get(next++)));
+          return true;
+        }
+      };
+    }
+
+    /**
+     * Merges {@code left} and {@code right}, both sorted by {@code keyOrder}. The values of the
+     * current key from {@code right} are buffered so they can be paired with each {@code left}
+     * value of the same key.
+     */
+    static <K, V, V2> BiIterator<K, Both<V, V2>> mergeJoining(
+        BiIterator<K, V> left,
+        BiIterator<? extends K, ? extends V2> right,
+        Comparator<? super K> keyOrder) {
+      return new BiIterator<K, Both<V, V2>>() {
+        private final TempPair<K, V> current = new TempPair<>();
+        private final TempPair<K, V2> nextRight = new TempPair<>();
+        private final List<V2> run = new ArrayList<>();
+        private boolean started = false;
+        private boolean hasCurrent = false;
+        private boolean hasNextRight;
+        private K runKey;
+        private int next = 0;
+
+        @Override public boolean tryAdvance(BiConsumer<? super K, ? super Both<V, V2>> consumer) {
+          if (!started) {
+            started = true;
+            hasNextRight = right.tryAdvance(nextRight);
+          }
+          while (next >= run.size()) {
+            if (run.isEmpty() && !hasNextRight) {
+              return false; // No more match possible.
+            }
+            K previous = current.key;
+            if (!left.tryAdvance(current)) {
+              return false;
+            }
+            if (hasCurrent) {
+              checkOrder(previous, current.key);
+            }
+            hasCurrent = true;
+            next = 0;
+            if (run.isEmpty() || keyOrder.compare(runKey, current.key) != 0) {
+              seek(current.key);
+            }
+          }
+          consumer.accept(current.key, Both.of(current.value, run.get(next++)));
+          return true;
+        }
+
+        /** Buffers the values of {@code key} from {@code right}, skipping the smaller keys. */
+        private void seek(K key) {
+          run.clear();
+          while (hasNextRight && keyOrder.compare(nextRight.key, key) < 0) {
+            advanceRight();
+          }
+          if (hasNextRight && keyOrder.compare(nextRight.key, key) == 0) {
+            runKey = nextRight.key;
+            do {
+              run.add(nextRight.value);
+              advanceRight();
+            } while (hasNextRight && keyOrder.compare(nextRight.key, runKey) == 0);
+          }
+        }
+
+        private void advanceRight() {
+          K previous = nextRight.key;
+          hasNextRight = right.tryAdvance(nextRight);
+          if (hasNextRight) {
+            checkOrder(previous, nextRight.key);
+          }
+        }
+
+        private void checkOrder(K previous, K key) {
+          if (keyOrder.compare(previous, key) > 0) {
+            throw new IllegalArgumentException(
+                "Keys not sorted: [" + previous + "] followed by [" + key + "]");
+          }
+        }
+      };
+    }
+
+    /** Only the distinct pairs are copied, with the pairs already seen probed in place. */
+    static <K, V> BiIterator<K, V> distinct(BiIterator<K, V> iterator) {
+      Set<TempPair<K, V>> seen = new HashSet<>();
+      TempPair<K, V> pair = new TempPair<>();
+      return consumer -> {
+        while (iterator.tryAdvance(pair)) {
+          if (!seen.contains(pair)) {
+            seen.add(pair.copy());
+            consumer.accept(pair.key, pair.value);
+            return true;
+          }
+        }
+        return false;
+      };
+    }
+
+    /**
+     * Buffers the keys and values in two columns, then stably sorts their indexes with {@code
+     * ordering}.
+     */
+    static <K, V> BiIterator<K, V> sorting(
+        BiIterator<K, V> iterator, BiComparator<? super K, ? super V> ordering) {
+      return new BiIterator<K, V>() {
+        private List<K> keys;
+        private List<V> values;
+        private int[] order;
+        private int next = 0;
+
+        @Override public boolean tryAdvance(BiConsumer<? super K, ? super V> consumer) {
+          if (order == null) {
+            keys = new ArrayList<>();
+            values = new ArrayList<>();
+            BiConsumer<K, V> buffer = (k, v) -> {
+              keys.add(k);
+              values.add(v);
+            };
+            while (iterator.tryAdvance(buffer)) {}
+            order = new int[keys.size()];
+            for (int i = 0; i < order.length; i++) {
+              order[i] = i;
+            }
+            sort(order.clone(), order, 0, order.length);
+          }
+          if (next >= order.length) {
+            return false;
+          }
+          int index = order[next++];
+          consumer.accept(keys.get(index), values.get(index));
+          return true;
+        }
+
+        /** Merge sorts {@code to[from, end)}, using {@code from[from, end)} as scratch space. */
+        private void sort(int[] from, int[] to, int fromIndex, int endIndex) {
+          if (endIndex - fromIndex < 2) {
+            return;
+          }
+          int mid = (fromIndex + endIndex) >>> 1;
+          sort(to, from, fromIndex, mid);
+          sort(to, from, mid, endIndex);
+          for (int i = fromIndex, l = fromIndex, r = mid; i < endIndex; i++) {
+            to[i] = r >= endIndex || (l < mid && compare(from[l], from[r]) <= 0)
+                ? from[l++]
+                : from[r++];
+          }
+        }
+
+        private int compare(int i, int j) {
+          return ordering.compare(keys.get(i), values.get(i), keys.get(j), values.get(j));
+        }
+      };
+    }
+  }
+
+  /** Holds the current pair, to be reused across pairs. */
+  static final class TempPair<K, V> implements BiConsumer<K, V> {
+    K key;
+    V value;
+
+    @Override public void accept(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    TempPair<K, V> copy() {
+      TempPair<K, V> copy = new TempPair<>();
+      copy.accept(key, value);
+      return copy;
+    }
+
+    @Override public boolean equals(Object obj) {
+      if (obj instanceof TempPair) {
+        TempPair<?, ?> that = (TempPair<?, ?>) obj;
+        return Objects.equals(key, that.key) && Objects.equals(value, that.value);
+      }
+      return false;
+    }
+
+    @Override public int hashCode() {
+      return Objects.hashCode(key) ^ Objects.hashCode(value);
+    }
+  }
+
   static final class Temp<T> implements Consumer<T> {
     T value;
 
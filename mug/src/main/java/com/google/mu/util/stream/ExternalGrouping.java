@@ -0,0 +1,431 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.mu.util.stream.BiStream.kv;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * Configures the external-memory grouping of {@link BiStream#groupingBy(Function, Function,
+ * BinaryOperator, ExternalGrouping)} and {@link BiCollectors#groupingBy(Function, BinaryOperator,
+ * ExternalGrouping)}, for when there are too many groups to fit in memory. For example:
+ *
+ * <pre>{@code
+ * Serializer<Long> longs = Serializer.of(DataOutput::writeLong, DataInput::readLong);
+ * ExternalGrouping<Long, Long> spilling =
+ *     ExternalGrouping.of(naturalOrder(), longs, longs).withMaxGroupsInMemory(10_000_000);
+ * try (BiStream<Long, Long> totalByAccount =
+ *     transactions.collect(groupingBy(Txn::accountId, Txn::amount, Long::sum, spilling))) {
+ *   totalByAccount.forEach(...);
+ * }
+ * }</pre>
+ *
+ * <p>Values of the same key are reduced in memory, for up to {@link #withMaxGroupsInMemory
+ * maxGroupsInMemory} groups. When exceeded, the groups are sorted by key and spilled to a temp
+ * file as a sorted run, after which the in-memory groups start over. The resulting {@code
+ * BiStream} lazily merges the sorted runs as it's read, reducing the values of the same key from
+ * different runs in encounter order with the same reducer.
+ *
+ * <p>Because of the merging, the groups are in the order of {@code keyOrder}, as opposed to in
+ * encounter order. {@code keyOrder} should be consistent with {@link Object#equals}. Null keys and
+ * values aren't supported.
+ *
+ * <p>The temp files are deleted once the resulting {@code BiStream} is exhausted or closed, or
+ * as soon as the grouping fails with an exception. A failure in the input stream itself is
+ * invisible to the grouping though, and can leave the temp files already spilled behind; use
+ * {@link #inDirectory} to keep them somewhere the caller cleans up.
+ *
+ * @since 6.2
+ */
+public final class ExternalGrouping<K, V> {
+  private static final int DEFAULT_MAX_GROUPS_IN_MEMORY = 1_000_000;
+
+  private final Comparator<? super K> keyOrder;
+  private final Serializer<K> keySerializer;
+  private final Serializer<V> valueSerializer;
+  private final int maxGroupsInMemory;
+  private final Path directory;
+
+  /** Writes and reads objects of type {@code T} to and from the spilled temp files. */
+  public interface Serializer<T> {
+    /** Writes {@code value} to {@code out}. */
+    void write(DataOutput out, T value) throws IOException;
+
+    /** Reads back a value previously written by {@link #write}. */
+    T read(DataInput in) throws IOException;
+
+    /**
+     * Returns a {@code Serializer} from the {@code encoder} and {@code decoder} functions, which
+     * allows method references such as {@code DataOutput::writeUTF} and {@code
+     * DataInput::readUTF} to be used.
+     */
+    static <T> Serializer<T> of(Encoder<? super T> encoder, Decoder<? extends T> decoder) {
+      requireNonNull(encoder);
+      requireNonNull(decoder);
+      return new Serializer<T>() {
+        @Override public void write(DataOutput out, T value) throws IOException {
+          encoder.encode(out, value);
+        }
+
+        @Override public T read(DataInput in) throws IOException {
+          return decoder.decode(in);
+        }
+      };
+    }
+
+    /** Encodes a value of type {@code T}. */
+    interface Encoder<T> {
+      void encode(DataOutput out, T value) throws IOException;
+    }
+
+    /** Decodes a value of type {@code T}. */
+    interface Decoder<T> {
+      T decode(DataInput in) throws IOException;
+    }
+  }
+
+  private ExternalGrouping(
+      Comparator<? super K> keyOrder,
+      Serializer<K> keySerializer,
+      Serializer<V> valueSerializer,
+      int maxGroupsInMemory,
+      Path directory) {
+    this.keyOrder = keyOrder;
+    this.keySerializer = keySerializer;
+    this.valueSerializer = valueSerializer;
+    this.maxGroupsInMemory = maxGroupsInMemory;
+    this.directory = directory;
+  }
+
+  /**
+   * Returns an {@code ExternalGrouping} that sorts the spilled groups by {@code keyOrder}, and
+   * serializes the keys and values using {@code keySerializer} and {@code valueSerializer}.
+   */
+  public static <K, V> ExternalGrouping<K, V> of(
+      Comparator<? super K> keyOrder, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+    return new ExternalGrouping<>(
+        requireNonNull(keyOrder),
+        requireNonNull(keySerializer),
+        requireNonNull(valueSerializer),
+        DEFAULT_MAX_GROUPS_IN_MEMORY,
+        null);
+  }
+
+  /**
+   * Returns a copy of this {@code ExternalGrouping} that keeps up to {@code maxGroupsInMemory}
+   * groups in memory before spilling them to disk. Defaults to 1,000,000.
+   *
+   * @throws IllegalArgumentException if {@code maxGroupsInMemory} isn't positive
+   */
+  public ExternalGrouping<K, V> withMaxGroupsInMemory(int maxGroupsInMemory) {
+    if (maxGroupsInMemory <= 0) {
+      throw new IllegalArgumentException(
+          "maxGroupsInMemory must be positive: " + maxGroupsInMemory);
+    }
+    return new ExternalGrouping<>(
+        keyOrder, keySerializer, valueSerializer, maxGroupsInMemory, directory);
+  }
+
+  /**
+   * Returns a copy of this {@code ExternalGrouping} that creates the temp files in {@code
+   * directory}, instead of in the default temp directory.
+   */
+  public ExternalGrouping<K, V> inDirectory(Path directory) {
+    return new ExternalGrouping<>(
+        keyOrder, keySerializer, valueSerializer, maxGroupsInMemory, requireNonNull(directory));
+  }
+
+  <T> Collector<T, ?, BiStream<K, V>> groupingBy(
+      Function<? super T, ? extends K> classifier,
+      Function<? super T, ? extends V> mapper,
+      BinaryOperator<V> reducer) {
+    requireNonNull(classifier);
+    requireNonNull(mapper);
+    requireNonNull(reducer);
+    return Collector.of(
+        () -> new Groups(reducer),
+        (groups, e) -> {
+          try {
+            groups.add(classifier.apply(e), mapper.apply(e));
+          } catch (RuntimeException | Error failure) {
+            groups.discardAfter(failure);
+            throw failure;
+          }
+        },
+        Groups::addAll,
+        Groups::merge);
+  }
+
+  /** The groups reduced in memory, plus the sorted runs spilled so far in encounter order. */
+  private final class Groups {
+    private final BinaryOperator<V> reducer;
+    private final List<Path> runs = new ArrayList<>();
+    private Map<K, V> table = new HashMap<>();
+
+    Groups(BinaryOperator<V> reducer) {
+      this.reducer = reducer;
+    }
+
+    void add(K key, V value) {
+      requireNonNull(key);
+      requireNonNull(value);
+      if (table.size() >= maxGroupsInMemory && !table.containsKey(key)) {
+        spill();
+      }
+      table.merge(key, value, reducer);
+    }
+
+    /** Adds {@code that}, which follows this in encounter order. */
+    Groups addAll(Groups that) {
+      try {
+        if (!that.runs.isEmpty()) {
+          spill(); // so that the runs stay in encounter order
+          runs.addAll(that.runs);
+          that.runs.clear();
+        }
+        that.table.forEach(this::add);
+        return this;
+      } catch (RuntimeException | Error e) {
+        that.discardAfter(e);
+        discardAfter(e);
+        throw e;
+      }
+    }
+
+    BiStream<K, V> merge() {
+      List<Map.Entry<K, V>> remaining;
+      try {
+        remaining = sortedTable();
+      } catch (RuntimeException | Error e) {
+        discardAfter(e);
+        throw e;
+      }
+      table = null;
+      if (runs.isEmpty()) {
+        return BiStream.fromEntries(remaining.stream());
+      }
+      Merger merger = new Merger(runs, remaining, reducer);
+      return BiStream.fromEntries(MoreStreams.whileNotNull(merger::next).onClose(merger::close));
+    }
+
+    /** Deletes the spilled runs after {@code failure}, and returns {@code failure}. */
+    <E extends Throwable> E discardAfter(E failure) {
+      deleteAll(runs, failure);
+      runs.clear();
+      return failure;
+    }
+
+    private void spill() {
+      if (table.isEmpty()) {
+        return;
+      }
+      List<Map.Entry<K, V>> sorted = sortedTable();
+      table = new HashMap<>();
+      try {
+        Path file = createTempFile();
+        runs.add(file);
+        try (DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+          out.writeInt(sorted.size());
+          for (Map.Entry<K, V> entry : sorted) {
+            keySerializer.write(out, entry.getKey());
+            valueSerializer.write(out, entry.getValue());
+          }
+        }
+      } catch (IOException e) {
+        throw discardAfter(new UncheckedIOException(e));
+      }
+    }
+
+    private List<Map.Entry<K, V>> sortedTable() {
+      List<Map.Entry<K, V>> sorted = new ArrayList<>(table.entrySet());
+      sorted.sort(Map.Entry.comparingByKey(keyOrder));
+      return sorted;
+    }
+  }
+
+  /** Merges the sorted runs, with the values of the same key reduced in encounter order. */
+  private final class Merger {
+    private final List<Path> runs;
+    private final List<RunReader> readers = new ArrayList<>();
+    private final List<Cursor> cursors = new ArrayList<>();
+    private final BinaryOperator<V> reducer;
+    private final PriorityQueue<Cursor> queue;
+    private boolean closed = false;
+
+    Merger(List<Path> runs, List<Map.Entry<K, V>> lastRun, BinaryOperator<V> reducer) {
+      this.runs = runs;
+      this.reducer = reducer;
+      Comparator<Cursor> byKey = (c1, c2) -> keyOrder.compare(c1.key, c2.key);
+      this.queue =
+          new PriorityQueue<>(runs.size() + 1, byKey.thenComparingInt(cursor -> cursor.index));
+      try {
+        for (Path run : runs) {
+          RunReader reader = new RunReader(run);
+          readers.add(reader);
+          cursors.add(new Cursor(cursors.size(), reader));
+        }
+        cursors.add(new Cursor(cursors.size(), lastRun.iterator()));
+        for (Cursor cursor : cursors) {
+          advance(cursor);
+        }
+      } catch (IOException e) {
+        throw closeAfter(new UncheckedIOException(e));
+      } catch (RuntimeException | Error e) {
+        closeAfter(e);
+        throw e;
+      }
+    }
+
+    /** Returns the next group, or null if there are no more. */
+    Map.Entry<K, V> next() {
+      Cursor first = queue.poll();
+      if (first == null) {
+        close();
+        return null;
+      }
+      K key = first.key;
+      V value = first.value;
+      advance(first);
+      while (!queue.isEmpty() && keyOrder.compare(queue.peek().key, key) == 0) {
+        Cursor cursor = queue.poll();
+        value = reducer.apply(value, cursor.value);
+        advance(cursor);
+      }
+      return kv(key, value);
+    }
+
+    void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      IOException failure = null;
+      for (RunReader reader : readers) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          failure = e;
+        }
+      }
+      deleteAll(runs, failure);
+      if (failure != null) {
+        throw new UncheckedIOException(failure);
+      }
+    }
+
+    /** Closes this merger after {@code failure}, and returns {@code failure}. */
+    private <E extends Throwable> E closeAfter(E failure) {
+      try {
+        close();
+      } catch (RuntimeException e) {
+        failure.addSuppressed(e);
+      }
+      return failure;
+    }
+
+    private void advance(Cursor cursor) {
+      if (cursor.entries.hasNext()) {
+        Map.Entry<K, V> entry = cursor.entries.next();
+        cursor.key = entry.getKey();
+        cursor.value = entry.getValue();
+        queue.add(cursor);
+      }
+    }
+  }
+
+  /** The current group of a sorted run. */
+  private final class Cursor {
+    final int index;
+    final Iterator<Map.Entry<K, V>> entries;
+    K key;
+    V value;
+
+    Cursor(int index, Iterator<Map.Entry<K, V>> entries) {
+      this.index = index;
+      this.entries = entries;
+    }
+  }
+
+  /** Reads back the groups of a spilled run. */
+  private final class RunReader implements Iterator<Map.Entry<K, V>> {
+    private final DataInputStream in;
+    private int remaining;
+
+    RunReader(Path file) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+      this.remaining = in.readInt();
+    }
+
+    @Override public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override public Map.Entry<K, V> next() {
+      try {
+        K key = keySerializer.read(in);
+        V value = valueSerializer.read(in);
+        remaining--;
+        return kv(key, value);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    void close() throws IOException {
+      in.close();
+    }
+  }
+
+  private Path createTempFile() throws IOException {
+    return directory == null
+        ? Files.createTempFile("grouping", ".run")
+        : Files.createTempFile(directory, "grouping", ".run");
+  }
+
+  /** Deletes {@code files}, with any failure added to {@code failure} as suppressed. */
+  private static void deleteAll(List<Path> files, Throwable failure) {
+    for (Path file : files) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        if (failure != null) {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+  }
+}
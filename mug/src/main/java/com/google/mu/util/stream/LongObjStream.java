@@ -0,0 +1,487 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators.AbstractLongSpliterator;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.mu.function.LongObjAccumulator;
+import com.google.mu.function.LongObjConsumer;
+import com.google.mu.function.LongObjFunction;
+import com.google.mu.function.LongObjPredicate;
+
+/**
+ * A sequential stream of pairs with primitive {@code long} keys and object values. Similar to
+ * {@code BiStream<Long, V>}, but the keys are never boxed, and no {@code Map.Entry} is allocated
+ * for the pairs going through the stream pipeline.
+ *
+ * <p>For example, to sum up the counters per id from records already sorted by id:
+ *
+ * <pre>{@code
+ * LongObjStream.from(records, Record::id, Record::counter)
+ *     .filterKeys(id -> id > 0)
+ *     .groupConsecutiveBy(id -> id, summingInt(Integer::intValue))
+ *     .forEach((id, sum) -> ...);
+ * }</pre>
+ *
+ * <p>Since {@code int} keys convert to {@code long} without loss, this class also serves for
+ * {@code int} keys such as indexes. Use {@link #boxed} and {@link #from(BiStream)} to convert
+ * between {@code BiStream<Long, V>} and {@code LongObjStream<V>}.
+ *
+ * <p>Only the keys are specialized. The values are objects, so primitive values such as the
+ * counters above are still boxed: compared to {@code BiStream<Long, Integer>}, this class saves
+ * the boxed keys and the {@code Map.Entry} per pair, but not the boxed values. {@link #toMap}
+ * returns a {@code Map<Long, V>} with boxed keys. To avoid boxing the keys in the result, use
+ * {@link #collect(Object, LongObjAccumulator)} with a primitive-keyed map.
+ *
+ * <p>Like {@link Stream}, a {@code LongObjStream} can only be operated upon once, and is lazy: the
+ * source isn't touched until a terminal operation is invoked. Operating upon the same stream again
+ * throws {@link IllegalStateException}. Values are allowed to be null.
+ *
+ * @since 6.2
+ */
+public final class LongObjStream<V> implements AutoCloseable {
+  private final Source<V> source;
+  private final Runnable closeHandler;
+  private boolean used = false;
+
+  private LongObjStream(Source<V> source, Runnable closeHandler) {
+    this.source = source;
+    this.closeHandler = closeHandler;
+  }
+
+  /** Returns an empty {@code LongObjStream}. */
+  public static <V> LongObjStream<V> empty() {
+    return new LongObjStream<>(sink -> false, () -> {});
+  }
+
+  /**
+   * Returns a {@code LongObjStream} of the pairs computed from {@code elements} using {@code toKey}
+   * and {@code toValue}, in encounter order.
+   */
+  public static <T, V> LongObjStream<V> from(
+      Collection<T> elements,
+      ToLongFunction<? super T> toKey,
+      Function<? super T, ? extends V> toValue) {
+    return from(elements.stream(), toKey, toValue);
+  }
+
+  /**
+   * Returns a {@code LongObjStream} of the pairs computed from {@code elements} using {@code toKey}
+   * and {@code toValue}, in encounter order. Both functions are called exactly once per element.
+   */
+  public static <T, V> LongObjStream<V> from(
+      Stream<T> elements,
+      ToLongFunction<? super T> toKey,
+      Function<? super T, ? extends V> toValue) {
+    requireNonNull(toKey);
+    requireNonNull(toValue);
+    BiStream.Temp<T> element = new BiStream.Temp<>();
+    Source<V> source = new Source<V>() {
+      private Spliterator<T> spliterator;
+
+      @Override public boolean next(LongObjConsumer<? super V> sink) {
+        if (spliterator == null) {
+          spliterator = elements.spliterator();
+        }
+        if (!spliterator.tryAdvance(element)) {
+          return false;
+        }
+        sink.accept(toKey.applyAsLong(element.value), toValue.apply(element.value));
+        return true;
+      }
+    };
+    return new LongObjStream<>(source, elements::close);
+  }
+
+  /**
+   * Returns a {@code LongObjStream} of the elements in {@code values} paired with their indexes,
+   * starting from 0. Equivalent to {@code BiStream.zip(indexesFrom(0L), values)}, but without
+   * boxing the indexes.
+   */
+  public static <V> LongObjStream<V> indexed(Stream<? extends V> values) {
+    BiStream.Temp<V> value = new BiStream.Temp<>();
+    Source<V> source = new Source<V>() {
+      private Spliterator<? extends V> spliterator;
+      private long index = 0;
+
+      @Override public boolean next(LongObjConsumer<? super V> sink) {
+        if (spliterator == null) {
+          spliterator = values.spliterator();
+        }
+        if (!spliterator.tryAdvance(value)) {
+          return false;
+        }
+        sink.accept(index++, value.value);
+        return true;
+      }
+    };
+    return new LongObjStream<>(source, values::close);
+  }
+
+  /**
+   * Returns a {@code LongObjStream} of the pairs in {@code stream}, with the keys unboxed.
+   *
+   * @throws NullPointerException upon encountering a null key
+   */
+  public static <V> LongObjStream<V> from(BiStream<Long, ? extends V> stream) {
+    requireNonNull(stream);
+    Source<V> source = new Source<V>() {
+      private BiIterator<Long, ? extends V> iterator;
+      private LongObjConsumer<? super V> sink;
+      private final BiConsumer<Long, V> unboxing = (k, v) -> sink.accept(k, v);
+
+      @Override public boolean next(LongObjConsumer<? super V> sink) {
+        if (iterator == null) {
+          iterator = stream.iterator();
+        }
+        this.sink = sink;
+        return iterator.tryAdvance(unboxing);
+      }
+    };
+    return new LongObjStream<>(source, stream::close);
+  }
+
+  /** Returns a {@code LongObjStream} of the pairs that match {@code predicate}. */
+  public LongObjStream<V> filter(LongObjPredicate<? super V> predicate) {
+    requireNonNull(predicate);
+    Source<V> upstream = use();
+    Pair<V> pair = new Pair<>();
+    return new LongObjStream<>(
+        sink -> {
+          while (upstream.next(pair)) {
+            if (predicate.test(pair.key, pair.value)) {
+              sink.accept(pair.key, pair.value);
+              return true;
+            }
+          }
+          return false;
+        },
+        closeHandler);
+  }
+
+  /** Returns a {@code LongObjStream} of the pairs whose keys match {@code predicate}. */
+  public LongObjStream<V> filterKeys(LongPredicate predicate) {
+    requireNonNull(predicate);
+    return filter((k, v) -> predicate.test(k));
+  }
+
+  /** Returns a {@code LongObjStream} of the pairs whose values match {@code predicate}. */
+  public LongObjStream<V> filterValues(Predicate<? super V> predicate) {
+    requireNonNull(predicate);
+    return filter((k, v) -> predicate.test(v));
+  }
+
+  /** Returns a {@code LongObjStream} with the keys mapped by {@code keyMapper}. */
+  public LongObjStream<V> mapKeys(LongUnaryOperator keyMapper) {
+    requireNonNull(keyMapper);
+    Source<V> upstream = use();
+    Pair<V> pair = new Pair<>();
+    return new LongObjStream<>(
+        sink -> {
+          if (!upstream.next(pair)) {
+            return false;
+          }
+          sink.accept(keyMapper.applyAsLong(pair.key), pair.value);
+          return true;
+        },
+        closeHandler);
+  }
+
+  /** Returns a {@code LongObjStream} with the values mapped by {@code valueMapper}. */
+  public <V2> LongObjStream<V2> mapValues(Function<? super V, ? extends V2> valueMapper) {
+    requireNonNull(valueMapper);
+    return mapValues((k, v) -> valueMapper.apply(v));
+  }
+
+  /**
+   * Returns a {@code LongObjStream} with the values mapped by {@code valueMapper}, which receives
+   * both the key and the value of each pair.
+   */
+  public <V2> LongObjStream<V2> mapValues(LongObjFunction<? super V, ? extends V2> valueMapper) {
+    requireNonNull(valueMapper);
+    Source<V> upstream = use();
+    Pair<V> pair = new Pair<>();
+    return new LongObjStream<>(
+        sink -> {
+          if (!upstream.next(pair)) {
+            return false;
+          }
+          sink.accept(pair.key, valueMapper.apply(pair.key, pair.value));
+          return true;
+        },
+        closeHandler);
+  }
+
+  /** Returns a {@code LongObjStream} that performs {@code action} on each pair as it's consumed. */
+  public LongObjStream<V> peek(LongObjConsumer<? super V> action) {
+    requireNonNull(action);
+    Source<V> upstream = use();
+    Pair<V> pair = new Pair<>();
+    return new LongObjStream<>(
+        sink -> {
+          if (!upstream.next(pair)) {
+            return false;
+          }
+          action.accept(pair.key, pair.value);
+          sink.accept(pair.key, pair.value);
+          return true;
+        },
+        closeHandler);
+  }
+
+  /** Returns a {@code LongObjStream} of no more than the first {@code maxSize} pairs. */
+  public LongObjStream<V> limit(long maxSize) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("Negative maxSize: " + maxSize);
+    }
+    Source<V> upstream = use();
+    Source<V> source = new Source<V>() {
+      private long remaining = maxSize;
+
+      @Override public boolean next(LongObjConsumer<? super V> sink) {
+        if (remaining <= 0) {
+          return false;
+        }
+        remaining--;
+        return upstream.next(sink);
+      }
+    };
+    return new LongObjStream<>(source, closeHandler);
+  }
+
+  /** Returns a {@code LongObjStream} of the pairs after skipping the first {@code n} pairs. */
+  public LongObjStream<V> skip(long n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("Negative n: " + n);
+    }
+    Source<V> upstream = use();
+    Pair<V> discarded = new Pair<>();
+    Source<V> source = new Source<V>() {
+      private long toSkip = n;
+
+      @Override public boolean next(LongObjConsumer<? super V> sink) {
+        for (; toSkip > 0; toSkip--) {
+          if (!upstream.next(discarded)) {
+            toSkip = 0;
+            return false;
+          }
+        }
+        discarded.value = null;
+        return upstream.next(sink);
+      }
+    };
+    return new LongObjStream<>(source, closeHandler);
+  }
+
+  /**
+   * Returns a {@code LongObjStream} consisting of consecutive groupings from this stream.
+   * Consecutive pairs whose key maps to the same group key according to {@code classifier} will
+   * have their values grouped together using {@code groupCollector}.
+   *
+   * <p>Like {@link BiStream#groupConsecutiveBy(Function, Collector)}, the pairs are consumed
+   * lazily, and only the current group is kept in memory.
+   */
+  public <A, R> LongObjStream<R> groupConsecutiveBy(
+      LongUnaryOperator classifier, Collector<? super V, A, R> groupCollector) {
+    requireNonNull(classifier);
+    requireNonNull(groupCollector);
+    Source<V> upstream = use();
+    BiConsumer<A, ? super V> accumulator = groupCollector.accumulator();
+    Source<R> source = new Source<R>() {
+      private final Pair<V> pair = new Pair<>();
+      private boolean pending = false;
+
+      @Override public boolean next(LongObjConsumer<? super R> sink) {
+        if (!pending && !(pending = upstream.next(pair))) {
+          return false;
+        }
+        long group = classifier.applyAsLong(pair.key);
+        A container = groupCollector.supplier().get();
+        do {
+          accumulator.accept(container, pair.value);
+          pending = upstream.next(pair);
+        } while (pending && classifier.applyAsLong(pair.key) == group);
+        sink.accept(group, groupCollector.finisher().apply(container));
+        return true;
+      }
+    };
+    return new LongObjStream<>(source, closeHandler);
+  }
+
+  /** Returns a {@code LongStream} of the keys in this stream. */
+  public LongStream keys() {
+    Source<V> upstream = use();
+    Pair<V> pair = new Pair<>();
+    return StreamSupport.longStream(
+            new AbstractLongSpliterator(Long.MAX_VALUE, Spliterator.ORDERED) {
+              @Override public boolean tryAdvance(LongConsumer action) {
+                if (!upstream.next(pair)) {
+                  return false;
+                }
+                action.accept(pair.key);
+                return true;
+              }
+            },
+            false)
+        .onClose(closeHandler);
+  }
+
+  /** Returns a {@code Stream} of the values in this stream. */
+  public Stream<V> values() {
+    return mapToObj((k, v) -> v);
+  }
+
+  /** Returns a {@code Stream} of the results of applying {@code mapper} to each pair. */
+  public <R> Stream<R> mapToObj(LongObjFunction<? super V, ? extends R> mapper) {
+    requireNonNull(mapper);
+    Source<V> upstream = use();
+    Pair<V> pair = new Pair<>();
+    return StreamSupport.stream(
+            new AbstractSpliterator<R>(Long.MAX_VALUE, Spliterator.ORDERED) {
+              @Override public boolean tryAdvance(Consumer<? super R> action) {
+                if (!upstream.next(pair)) {
+                  return false;
+                }
+                action.accept(mapper.apply(pair.key, pair.value));
+                return true;
+              }
+            },
+            false)
+        .onClose(closeHandler);
+  }
+
+  /** Returns a {@code BiStream} of the pairs in this stream, with the keys boxed. */
+  public BiStream<Long, V> boxed() {
+    return BiStream.fromEntries(mapToObj(BiStream::kv));
+  }
+
+  /** Performs {@code action} for each pair in encounter order. */
+  public void forEach(LongObjConsumer<? super V> action) {
+    requireNonNull(action);
+    Source<V> upstream = use();
+    while (upstream.next(action)) {}
+  }
+
+  /** Returns true if any pair matches {@code predicate}. */
+  public boolean anyMatch(LongObjPredicate<? super V> predicate) {
+    return filter(predicate).use().next(new Pair<>());
+  }
+
+  /** Returns true if all pairs match {@code predicate}, or if the stream is empty. */
+  public boolean allMatch(LongObjPredicate<? super V> predicate) {
+    requireNonNull(predicate);
+    return !anyMatch((k, v) -> !predicate.test(k, v));
+  }
+
+  /** Returns true if no pair matches {@code predicate}, or if the stream is empty. */
+  public boolean noneMatch(LongObjPredicate<? super V> predicate) {
+    return !anyMatch(predicate);
+  }
+
+  /** Returns the number of pairs in this stream. */
+  public long count() {
+    Source<V> upstream = use();
+    Pair<V> pair = new Pair<>();
+    long count = 0;
+    while (upstream.next(pair)) {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Collects the pairs into {@code container} using {@code accumulator}, and returns the
+   * container. The keys are passed to {@code accumulator} unboxed, so primitive-keyed maps from
+   * third-party libraries can be populated without boxing, for example: {@code
+   * collect(new Long2ObjectOpenHashMap<>(), Long2ObjectMap::put)}.
+   */
+  public <A> A collect(A container, LongObjAccumulator<? super A, ? super V> accumulator) {
+    requireNonNull(container);
+    requireNonNull(accumulator);
+    forEach((k, v) -> accumulator.accumulate(container, k, v));
+    return container;
+  }
+
+  /**
+   * Returns an immutable {@link Map} of the pairs in this stream, in encounter order.
+   *
+   * @throws IllegalArgumentException if a duplicate key is encountered
+   */
+  public Map<Long, V> toMap() {
+    Map<Long, V> map = new LinkedHashMap<>();
+    forEach((k, v) -> {
+      if (map.containsKey(k)) {
+        throw new IllegalArgumentException("Duplicate key: [" + k + "]");
+      }
+      map.put(k, v);
+    });
+    return Collections.unmodifiableMap(map);
+  }
+
+  /** Closes any resources associated with this stream. */
+  @Override public void close() {
+    closeHandler.run();
+  }
+
+  /**
+   * Marks this stream as operated upon, and returns its source.
+   *
+   * @throws IllegalStateException if this stream has already been operated upon
+   */
+  private Source<V> use() {
+    if (used) {
+      throw new IllegalStateException("stream has already been operated upon");
+    }
+    used = true;
+    return source;
+  }
+
+  /** Pulls the pairs one at a time. */
+  private interface Source<V> {
+    /** Passes the next pair to {@code sink} and returns true, or returns false if exhausted. */
+    boolean next(LongObjConsumer<? super V> sink);
+  }
+
+  /** A reusable holder of the current pair, so that no object is allocated per pair. */
+  private static final class Pair<V> implements LongObjConsumer<V> {
+    long key;
+    V value;
+
+    @Override public void accept(long key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+}
@@ -69,6 +69,56 @@ public class CharPredicateTest {
     assertThat(CharPredicate.range('A', 'Z').or('c').toString()).isEqualTo("['A', 'Z'] | 'c'");
   }
 
+  @Test public void testPrecompute_ascii() {
+    CharPredicate predicate = CharPredicate.range('a', 'z').or('_').or('\u007f').precompute();
+    assertThat(predicate.test('a')).isTrue();
+    assertThat(predicate.test('z')).isTrue();
+    assertThat(predicate.test('_')).isTrue();
+    assertThat(predicate.test('\u007f')).isTrue();
+    assertThat(predicate.test('A')).isFalse();
+    assertThat(predicate.test('\u0000')).isFalse();
+    assertThat(predicate.test('\u0080')).isFalse();
+    assertThat(predicate.test('\u00e1')).isFalse();
+    assertThat(predicate.test('\uffff')).isFalse();
+  }
+
+  @Test public void testPrecompute_nonAscii() {
+    CharPredicate predicate = CharPredicate.is('x').orRange('\u4e00', '\u9fff').precompute();
+    assertThat(predicate.test('x')).isTrue();
+    assertThat(predicate.test('\u4e00')).isTrue();
+    assertThat(predicate.test('\u9fff')).isTrue();
+    assertThat(predicate.test('y')).isFalse();
+    assertThat(predicate.test('\u4dff')).isFalse();
+    assertThat(predicate.test('\ua000')).isFalse();
+  }
+
+  @Test public void testPrecompute_equivalent() {
+    CharPredicate predicate = Character::isWhitespace;
+    CharPredicate precomputed = predicate.precompute();
+    for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+      assertThat(precomputed.test((char) c)).isEqualTo(predicate.test((char) c));
+    }
+  }
+
+  @Test public void testPrecompute_idempotent() {
+    CharPredicate precomputed = CharPredicate.is('c').precompute();
+    assertThat(precomputed.precompute()).isSameAs(precomputed);
+  }
+
+  @Test public void testPrecompute_toString() {
+    assertThat(CharPredicate.is('c').orRange('A', 'Z').precompute().toString())
+        .isEqualTo("'c' | ['A', 'Z']");
+  }
+
+  @Test public void testWord() {
+    assertThat(CharPredicate.WORD.test('a')).isTrue();
+    assertThat(CharPredicate.WORD.test('Z')).isTrue();
+    assertThat(CharPredicate.WORD.test('0')).isTrue();
+    assertThat(CharPredicate.WORD.test('_')).isTrue();
+    assertThat(CharPredicate.WORD.test('-')).isFalse();
+    assertThat(CharPredicate.WORD.test('\u00e1')).isFalse();
+  }
+
   @Test public void testNulls() throws Throwable {
     CharPredicate p = CharPredicate.is('a');
     new NullPointerTester().testAllPublicInstanceMethods(p);
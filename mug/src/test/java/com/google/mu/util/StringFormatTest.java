@@ -0,0 +1,115 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.NullPointerTester;
+
+@RunWith(JUnit4.class)
+public class StringFormatTest {
+
+  @Test public void parse_onePlaceholder() {
+    assertThat(new StringFormat("Hello {name}!").parse("Hello Tom!", n -> n)).hasValue("Tom");
+    assertThat(new StringFormat("{id}").parse("123", id -> Integer.parseInt(id))).hasValue(123);
+  }
+
+  @Test public void parse_emptyValue() {
+    assertThat(new StringFormat("id:{id}").parse("id:", id -> "[" + id + "]")).hasValue("[]");
+    assertThat(new StringFormat("{a}-{b}").parse("-", (a, b) -> a + b)).hasValue("");
+  }
+
+  @Test public void parse_twoPlaceholders() {
+    assertThat(
+            new StringFormat("{user}-{date}.log")
+                .parse("joe-2021-10-01.log", (user, date) -> user + "@" + date))
+        .hasValue("joe@2021-10-01");
+  }
+
+  @Test public void parse_threePlaceholders() {
+    assertThat(new StringFormat("{a}/{b}-{c}").parse("x/y-z-w", (a, b, c) -> a + "," + b + "," + c))
+        .hasValue("x,y,z-w");
+  }
+
+  @Test public void parse_fourPlaceholders() {
+    assertThat(
+            new StringFormat("{a}.{b}.{c}.{d}")
+                .parse("192.168.0.1", (a, b, c, d) -> a + b + c + d))
+        .hasValue("19216801");
+  }
+
+  @Test public void parse_fivePlaceholders() {
+    assertThat(
+            new StringFormat("{a}-{b}-{c}-{d}-{e}")
+                .parse("1-2-3-4-5", (a, b, c, d, e) -> a + b + c + d + e))
+        .hasValue("12345");
+  }
+
+  @Test public void parse_sixPlaceholders() {
+    assertThat(
+            new StringFormat("{a}-{b}-{c}-{d}-{e}-{f}")
+                .parse("1-2-3-4-5-6", (a, b, c, d, e, f) -> a + b + c + d + e + f))
+        .hasValue("123456");
+  }
+
+  @Test public void parse_charSequenceInput() {
+    assertThat(new StringFormat("{k}={v}").parse(new StringBuilder("foo=bar"), (k, v) -> k + v))
+        .hasValue("foobar");
+  }
+
+  @Test public void parse_placeholderMatchesUpToFirstLiteral() {
+    assertThat(new StringFormat("{a}={b}").parse("k=v=w", (a, b) -> a + "," + b))
+        .hasValue("k,v=w");
+    assertThat(new StringFormat("<{tag}>").parse("<>>", tag -> tag)).hasValue(">");
+  }
+
+  @Test public void parse_prefixMismatch() {
+    assertThat(new StringFormat("id:{id}").parse("ID:123", id -> id)).isEmpty();
+  }
+
+  @Test public void parse_suffixMismatch() {
+    assertThat(new StringFormat("{name}.log").parse("foo.txt", name -> name)).isEmpty();
+    assertThat(new StringFormat("{a}-{b}.log").parse("x.log", (a, b) -> a)).isEmpty();
+  }
+
+  @Test public void parse_literalMissing() {
+    assertThat(new StringFormat("{a}-{b}").parse("ab", (a, b) -> a)).isEmpty();
+  }
+
+  @Test public void parse_wrongNumberOfPlaceholders() {
+    StringFormat format = new StringFormat("{a}-{b}");
+    assertThrows(IllegalArgumentException.class, () -> format.parse("x-y", a -> a));
+    assertThrows(IllegalArgumentException.class, () -> format.parse("x-y", (a, b, c) -> a));
+  }
+
+  @Test public void adjacentPlaceholdersDisallowed() {
+    assertThrows(IllegalArgumentException.class, () -> new StringFormat("{a}{b}"));
+  }
+
+  @Test public void testToString() {
+    assertThat(new StringFormat("{user}-{date}.log").toString()).isEqualTo("{user}-{date}.log");
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester().testAllPublicConstructors(StringFormat.class);
+    new NullPointerTester().testAllPublicInstanceMethods(new StringFormat("{a}"));
+  }
+}
@@ -1,5 +1,6 @@
 package com.google.mu.util;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableListMultimap.toImmutableListMultimap;
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth8.assertThat;
@@ -10,6 +11,7 @@ import static com.google.mu.util.Substring.before;
 import static com.google.mu.util.Substring.consecutive;
 import static com.google.mu.util.Substring.first;
 import static com.google.mu.util.Substring.firstOccurrence;
+import static com.google.mu.util.Substring.firstOf;
 import static com.google.mu.util.Substring.last;
 import static com.google.mu.util.Substring.leading;
 import static com.google.mu.util.Substring.prefix;
@@ -17,15 +19,29 @@ import static com.google.mu.util.Substring.spanningInOrder;
 import static com.google.mu.util.Substring.suffix;
 import static com.google.mu.util.Substring.trailing;
 import static com.google.mu.util.Substring.upToIncluding;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.nCopies;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Spliterator;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 import java.util.stream.Collector;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.junit.Test;
@@ -34,6 +50,7 @@ import org.junit.runners.JUnit4;
 
 import com.google.common.base.Ascii;
 import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.LinkedListMultimap;
@@ -782,6 +799,51 @@ public class SubstringTest {
     assertThat(first(Pattern.compile(".*x")).toString()).isEqualTo("first(\".*x\", 0)");
   }
 
+  @Test public void regex_literal_matchedNatively() {
+    Substring.Pattern pattern = first(Pattern.compile("\\Q1.0\\E"));
+    assertThat(pattern.toString()).isEqualTo("first('1.0')");
+    assertThat(pattern.repeatedly().from("1.0 1x0 1.0")).containsExactly("1.0", "1.0");
+    assertThat(first(Pattern.compile("a\\.b")).toString()).isEqualTo("first('a.b')");
+    assertThat(first(Pattern.compile("a.b", Pattern.LITERAL)).toString()).isEqualTo("first('a.b')");
+  }
+
+  @Test public void regex_literalAlternation_matchedNatively() {
+    Substring.Pattern pattern = first(Pattern.compile("ab|a"));
+    assertThat(pattern.toString()).isEqualTo("firstOf([ab, a])");
+    assertThat(pattern.repeatedly().from("aab b ab")).containsExactly("a", "ab", "ab").inOrder();
+  }
+
+  @Test public void regex_charClass_matchedNatively() {
+    Substring.Pattern pattern = first(Pattern.compile("[a-c_]"));
+    assertThat(pattern.toString()).isEqualTo("first([a-c_])");
+    assertThat(pattern.repeatedly().from("x_ad-c")).containsExactly("_", "a", "c").inOrder();
+    assertThat(first(Pattern.compile("\\d")).repeatedly().from("a1b23"))
+        .containsExactly("1", "2", "3")
+        .inOrder();
+    assertThat(first(Pattern.compile("[\\s,]")).repeatedly().from("a b,c\td"))
+        .containsExactly(" ", ",", "\t")
+        .inOrder();
+  }
+
+  @Test public void regex_notMatchedNatively() {
+    assertThat(first(Pattern.compile("[^a]")).toString()).isEqualTo("first(\"[^a]\", 0)");
+    assertThat(first(Pattern.compile("a+")).toString()).isEqualTo("first(\"a+\", 0)");
+    assertThat(first(Pattern.compile("foo", Pattern.CASE_INSENSITIVE)).toString())
+        .isEqualTo("first(\"foo\", 0)");
+    assertThat(first(Pattern.compile("foo|")).toString()).isEqualTo("first(\"foo|\", 0)");
+  }
+
+  @Test public void regex_literalAlternation_lookaroundBacktracksIntoAlternatives() {
+    assertThat(first(Pattern.compile("ab|a")).immediatelyBetween("", "b").from("abc"))
+        .hasValue("a");
+  }
+
+  @Test public void topLevelGroups_simpleRegex() {
+    assertThat(Substring.topLevelGroups(Pattern.compile("GET|POST")).from("do POST or GET"))
+        .containsExactly("POST");
+    assertThat(Substring.topLevelGroups(Pattern.compile("\\d")).from("abc")).isEmpty();
+  }
+
   @Test public void regex_noMatch() {
     assertThat(first(Pattern.compile(".*x")).in("bar")).isEmpty();
     assertThat(first(Pattern.compile(".*x")).in("")).isEmpty();
@@ -1483,6 +1545,137 @@ public class SubstringTest {
     assertThat(Substring.first("var").repeatedly().replaceAllFrom("var=x", m -> "v")).isEqualTo("v=x");
   }
 
+  @Test public void repeatedly_scan_noMatch() {
+    Substring.MatchCursor cursor = first(',').repeatedly().scan("foo");
+    assertThat(cursor.next()).isFalse();
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @Test public void repeatedly_scan_matches() {
+    Substring.MatchCursor cursor = first("::").repeatedly().scan("a::b::::c");
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(1);
+    assertThat(cursor.endIndex()).isEqualTo(3);
+    assertThat(cursor.length()).isEqualTo(2);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(4);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(6);
+    assertThat(cursor.endIndex()).isEqualTo(8);
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @Test public void repeatedly_scan_charPredicate() {
+    Substring.MatchCursor cursor =
+        first(CharPredicate.is(',').or(CharPredicate.is(';')))
+            .repeatedly()
+            .scan(new StringBuilder("a,b;c"));
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(1);
+    assertThat(cursor.endIndex()).isEqualTo(2);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(3);
+    assertThat(cursor.length()).isEqualTo(1);
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @Test public void repeatedly_scan_firstOf() {
+    Substring.MatchCursor cursor = firstOf("ab", "b", "cd").repeatedly().scan("xabbcd");
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(1);
+    assertThat(cursor.endIndex()).isEqualTo(3);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(3);
+    assertThat(cursor.length()).isEqualTo(1);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(4);
+    assertThat(cursor.endIndex()).isEqualTo(6);
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @Test public void repeatedly_scan_consecutive() {
+    Substring.MatchCursor cursor =
+        consecutive(CharPredicate.range('0', '9')).repeatedly().scan("a12b345");
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(1);
+    assertThat(cursor.endIndex()).isEqualTo(3);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(4);
+    assertThat(cursor.endIndex()).isEqualTo(7);
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @Test public void repeatedly_scan_sameAsMatch() {
+    Substring.Pattern pattern =
+        Stream.of(before(first('/')), first('/')).collect(firstOccurrence());
+    Substring.MatchCursor cursor = pattern.repeatedly().scan("foo/bar");
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(0);
+    assertThat(cursor.endIndex()).isEqualTo(3);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(3);
+    assertThat(cursor.endIndex()).isEqualTo(4);
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @Test public void repeatedly_scan_limit() {
+    Substring.MatchCursor cursor = Substring.word().limit(1).repeatedly().scan("foo bar");
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(0);
+    assertThat(cursor.endIndex()).isEqualTo(1);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(4);
+    assertThat(cursor.endIndex()).isEqualTo(5);
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @Test public void repeatedly_scan_topLevelGroups() {
+    Substring.MatchCursor cursor =
+        Substring.topLevelGroups(Pattern.compile("(f+)(cde)")).scan("zfffcde");
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(1);
+    assertThat(cursor.endIndex()).isEqualTo(4);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.index()).isEqualTo(4);
+    assertThat(cursor.endIndex()).isEqualTo(7);
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @Test public void repeatedly_scan_noCurrentMatch() {
+    Substring.MatchCursor cursor = first(',').repeatedly().scan("a,b");
+    assertThrows(IllegalStateException.class, cursor::index);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.next()).isFalse();
+    assertThrows(IllegalStateException.class, cursor::endIndex);
+  }
+
+  @Test public void repeatedly_startIndexes() {
+    assertThat(first(',').repeatedly().startIndexes("a,b,c").toArray())
+        .asList()
+        .containsExactly(1, 3)
+        .inOrder();
+    assertThat(first(',').repeatedly().startIndexes("abc").toArray()).isEmpty();
+    assertThat(Substring.between("(", ")").repeatedly().startIndexes("(a)(bc)").toArray())
+        .asList()
+        .containsExactly(1, 4)
+        .inOrder();
+  }
+
+  @Test public void repeatedly_startIndexes_topLevelGroups() {
+    assertThat(Substring.topLevelGroups(Pattern.compile("(f+)(cde)")).startIndexes("zfffcde").toArray())
+        .asList()
+        .containsExactly(1, 4)
+        .inOrder();
+  }
+
+  @Test public void repeatedly_indexes() {
+    assertThat(first(',').repeatedly().indexes("a,b,c")).asList().containsExactly(1, 3).inOrder();
+    assertThat(first(',').repeatedly().indexes("")).isEmpty();
+    String lines = String.join("\n", nCopies(100, "line"));
+    assertThat(first('\n').repeatedly().indexes(lines))
+        .isEqualTo(first('\n').repeatedly().match(lines).mapToInt(Match::index).toArray());
+  }
+
   @Test public void delimit() {
     assertThat(first(',').repeatedly().split("foo").map(Match::toString))
         .containsExactly("foo");
@@ -1634,6 +1827,39 @@ public class SubstringTest {
     assertThrows(IllegalArgumentException.class, () -> kvs.toMap());
   }
 
+  @Test public void repeatedly_splitKeyValuesAroundToConsumer() {
+    Map<String, String> map = new LinkedHashMap<>();
+    first('&').repeatedly().splitKeyValuesAround(first('='), "k1=v1&&k2= v2&", map::put);
+    assertThat(map).containsExactly("k1", "v1", "k2", " v2").inOrder();
+  }
+
+  @Test public void repeatedly_splitKeyValuesAroundToConsumer_empty() {
+    Map<String, String> map = new LinkedHashMap<>();
+    first('&').repeatedly().splitKeyValuesAround(first('='), "", map::put);
+    assertThat(map).isEmpty();
+  }
+
+  @Test public void repeatedly_splitKeyValuesAroundToConsumer_keyValueSeparatorNotFound() {
+    Map<String, String> map = new LinkedHashMap<>();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> first('&').repeatedly().splitKeyValuesAround(first('='), "k1=v1&k2", map::put));
+    assertThat(map).containsExactly("k1", "v1");
+  }
+
+  @Test public void repeatedly_splitThenTrimKeyValuesAroundToConsumer() {
+    Map<String, String> map = new LinkedHashMap<>();
+    first(',').repeatedly().splitThenTrimKeyValuesAround(first('='), " k1 = v1, ,k2=v2 ,", map::put);
+    assertThat(map).containsExactly("k1", "v1", "k2", "v2").inOrder();
+  }
+
+  @Test public void repeatedly_splitThenTrimKeyValuesAroundToConsumer_keyValueSeparatorNotFound() {
+    Map<String, String> map = new LinkedHashMap<>();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> first(',').repeatedly().splitThenTrimKeyValuesAround(first('='), "k:v", map::put));
+  }
+
   @Test public void repeatedly_alternationFrom_empty() {
     assertKeyValues(first(',').repeatedly().alternationFrom(""))
         .isEmpty();
@@ -2599,6 +2825,37 @@ public class SubstringTest {
     assertThat(END.in("foobar").get().index()).isEqualTo(6);
   }
 
+  @Test public void matcher_endIndex() {
+    assertThat(Substring.first("foo").in("foobar").get().endIndex()).isEqualTo(3);
+    assertThat(Substring.first("bar").in("foobar").get().endIndex()).isEqualTo(6);
+    assertThat(END.in("foobar").get().endIndex()).isEqualTo(6);
+    assertThat(BEGINNING.in("foobar").get().endIndex()).isEqualTo(0);
+  }
+
+  @Test public void matcher_contentEquals() {
+    Substring.Match match = Substring.first("bar").in("foobarbaz").get();
+    assertThat(match.contentEquals("bar")).isTrue();
+    assertThat(match.contentEquals(new StringBuilder("bar"))).isTrue();
+    assertThat(match.contentEquals("ba")).isFalse();
+    assertThat(match.contentEquals("barb")).isFalse();
+    assertThat(match.contentEquals("baz")).isFalse();
+    assertThat(match.contentEquals(new StringBuilder("baz"))).isFalse();
+    assertThat(match.contentEquals("")).isFalse();
+    assertThat(BEGINNING.in("foo").get().contentEquals("")).isTrue();
+  }
+
+  @Test public void matcher_contentEquals_afterToString() {
+    Substring.Match match = Substring.first("bar").in("foobarbaz").get();
+    assertThat(match.toString()).isEqualTo("bar");
+    assertThat(match.contentEquals("bar")).isTrue();
+    assertThat(match.contentEquals("baz")).isFalse();
+  }
+
+  @Test public void matcher_toStringCached() {
+    Substring.Match match = Substring.first("bar").in(new StringBuilder("foobar")).get();
+    assertThat(match.toString()).isSameAs(match.toString());
+  }
+
   @Test public void matcher_fullString() {
     assertThat(Substring.first("bar").in("foobar").get().fullString()).isEqualTo("foobar");
   }
@@ -2770,6 +3027,167 @@ public class SubstringTest {
         .inOrder();
   }
 
+  @Test
+  public void firstOf_noCandidate() {
+    Substring.Pattern pattern = firstOf();
+    assertThat(pattern.from("string")).isEmpty();
+    assertThat(pattern.repeatedly().from("string")).isEmpty();
+  }
+
+  @Test
+  public void firstOf_singleCandidate() {
+    assertThat(firstOf("bar").from("foo bar")).hasValue("bar");
+    assertThat(firstOf("bar").repeatedly().from("bar foo bar")).containsExactly("bar", "bar");
+    assertThat(firstOf("zoo").from("foo bar")).isEmpty();
+  }
+
+  @Test
+  public void firstOf_emptyCandidate() {
+    assertThrows(IllegalArgumentException.class, () -> firstOf("", "foo"));
+    assertThrows(IllegalArgumentException.class, () -> firstOf("foo", ""));
+    assertThrows(IllegalArgumentException.class, () -> firstOf(""));
+  }
+
+  @Test
+  public void firstOf_repeatedly_sameAsFirstOccurrence() {
+    ImmutableList<String> candidates = ImmutableList.of("a", "ab", "b", "bc");
+    Substring.Pattern reference =
+        candidates.stream().map(Substring::first).collect(firstOccurrence());
+    for (String input : ImmutableList.of("", "a", "ab", "abc", "xaxb", "bcab", "babcx")) {
+      assertThat(firstOf(candidates).repeatedly().from(input))
+          .containsExactlyElementsIn(reference.repeatedly().from(input).collect(toImmutableList()))
+          .inOrder();
+    }
+  }
+
+  @Test
+  public void firstOf_leftmostCandidateWins() {
+    Substring.Pattern pattern = firstOf("WARN", "ERROR", "FATAL");
+    assertThat(pattern.from("12:00 ERROR: disk WARN")).hasValue("ERROR");
+    assertThat(pattern.repeatedly().from("12:00 ERROR: disk WARN, FATAL"))
+        .containsExactly("ERROR", "WARN", "FATAL")
+        .inOrder();
+    assertThat(pattern.from("INFO: ok")).isEmpty();
+  }
+
+  @Test
+  public void firstOf_sameIndex_firstCandidateWins() {
+    assertThat(firstOf("foo", "food").from("my food")).hasValue("foo");
+    assertThat(firstOf("food", "foo").from("my food")).hasValue("food");
+    assertThat(firstOf("od", "food").from("my food")).hasValue("food");
+  }
+
+  @Test
+  public void firstOf_overlappingCandidates() {
+    Substring.Pattern pattern = firstOf("oop", "foo", "op", "pool", "load", "oad");
+    assertThat(pattern.repeatedly().from("foopooload"))
+        .containsExactly("foo", "pool", "oad")
+        .inOrder();
+  }
+
+  @Test
+  public void firstOf_nonAsciiCandidates() {
+    Substring.Pattern pattern = firstOf("\u4e2d\u6587", "\u65e5\u672c", "abc");
+    assertThat(pattern.repeatedly().from("abc \u65e5\u672c\u4e2d\u6587"))
+        .containsExactly("abc", "\u65e5\u672c", "\u4e2d\u6587")
+        .inOrder();
+  }
+
+  @Test
+  public void firstOf_split() {
+    assertThat(firstOf(",", ";", "\r\n").repeatedly().split("a,b;c\r\nd").map(Match::toString))
+        .containsExactly("a", "b", "c", "d")
+        .inOrder();
+  }
+
+  @Test
+  public void firstOf_separatedBy() {
+    Substring.Pattern pattern = firstOf("if", "else", "for").separatedBy(CharPredicate.WORD.not());
+    assertThat(pattern.repeatedly().from("forty if (iffy) else for"))
+        .containsExactly("if", "else", "for")
+        .inOrder();
+  }
+
+  @Test
+  public void firstOf_immediatelyBetween() {
+    Substring.Pattern pattern = firstOf("foo", "bar").immediatelyBetween("(", ")");
+    assertThat(pattern.repeatedly().from("foo (bar) (foo)")).containsExactly("bar", "foo").inOrder();
+  }
+
+  @Test
+  public void firstOf_toString() {
+    assertThat(firstOf("foo", "bar").toString()).isEqualTo("firstOf([foo, bar])");
+  }
+
+  @Test
+  public void prefixes_noMatch() {
+    assertThat(Substring.prefixes("/api/", "/static/").in("/apx")).isEmpty();
+    assertThat(Substring.prefixes("/api/", "/static/").in("")).isEmpty();
+    assertThat(Substring.prefixes().in("foo")).isEmpty();
+  }
+
+  @Test
+  public void prefixes_longestWins() {
+    Substring.Pattern routes = Substring.prefixes("/api/", "/api/v2/", "/static/");
+    assertThat(routes.from("/api/v2/users")).hasValue("/api/v2/");
+    assertThat(routes.from("/api/v1/users")).hasValue("/api/");
+    assertThat(routes.from("/static/logo.png")).hasValue("/static/");
+    assertThat(routes.from("/api/v2")).hasValue("/api/");
+  }
+
+  @Test
+  public void prefixes_matchCanBeRemoved() {
+    Substring.Pattern routes = Substring.prefixes(ImmutableList.of("/api/", "/api/v2/"));
+    assertThat(routes.removeFrom("/api/v2/users")).isEqualTo("users");
+    assertThat(routes.in("/api/v1/users").get().after()).isEqualTo("v1/users");
+    assertThat(routes.in("/api/v1/users").get().index()).isEqualTo(0);
+  }
+
+  @Test
+  public void prefixes_emptyCandidate() {
+    Substring.Pattern pattern = Substring.prefixes("", "foo");
+    assertThat(pattern.from("bar")).hasValue("");
+    assertThat(pattern.from("food")).hasValue("foo");
+  }
+
+  @Test
+  public void prefixes_repeatedly() {
+    assertThat(Substring.prefixes("a", "ab").repeatedly().from("ababac"))
+        .containsExactly("ab", "ab", "a")
+        .inOrder();
+  }
+
+  @Test
+  public void prefixes_toString() {
+    assertThat(Substring.prefixes("foo", "bar").toString()).isEqualTo("prefixes([foo, bar])");
+  }
+
+  @Test
+  public void suffixes_noMatch() {
+    assertThat(Substring.suffixes(".gz", ".zip").in("src.tar")).isEmpty();
+    assertThat(Substring.suffixes(".gz", ".zip").in("")).isEmpty();
+    assertThat(Substring.suffixes().in("foo")).isEmpty();
+  }
+
+  @Test
+  public void suffixes_longestWins() {
+    Substring.Pattern extensions = Substring.suffixes(".gz", ".tar.gz", ".zip");
+    assertThat(extensions.from("src.tar.gz")).hasValue(".tar.gz");
+    assertThat(extensions.from("src.gz")).hasValue(".gz");
+    assertThat(extensions.removeFrom("src.tar.gz")).isEqualTo("src");
+    assertThat(extensions.in("src.zip").get().before()).isEqualTo("src");
+  }
+
+  @Test
+  public void suffixes_surrogatePairs() {
+    assertThat(Substring.suffixes(ImmutableList.of("😀", "a😀")).from("xa😀")).hasValue("a😀");
+  }
+
+  @Test
+  public void suffixes_toString() {
+    assertThat(Substring.suffixes("foo", "bar").toString()).isEqualTo("suffixes([foo, bar])");
+  }
+
   @Test public void firstOccurrence_splitKeyValues_withFixedSetOfKeys_noReservedDelimiter() {
     String input = "playlist id:foo bar artist: another name a: my name:age";
     Substring.Pattern delim =
@@ -2892,6 +3310,41 @@ public class SubstringTest {
         .containsExactly("foo", "dog");
   }
 
+  @Test
+  public void firstOccurrence_charAndStringLiterals() {
+    Substring.Pattern pattern =
+        Stream.of(first("=>"), first('='), first('>'), first("->"))
+            .collect(firstOccurrence());
+    assertThat(pattern.in("a -> b").map(Match::index)).hasValue(2);
+    assertThat(pattern.repeatedly().from("a=>b=c>d->e"))
+        .containsExactly("=>", "=", ">", "->")
+        .inOrder();
+    assertThat(pattern.repeatedly().from(new StringBuilder("a=>b=c>d->e")))
+        .containsExactly("=>", "=", ">", "->")
+        .inOrder();
+    assertThat(pattern.toString())
+        .isEqualTo("firstOccurrenceOf([first('=>'), first('='), first('>'), first('->')])");
+  }
+
+  @Test
+  public void firstOccurrence_literalsMixedWithOtherPatterns() {
+    Substring.Pattern pattern =
+        Stream.of(first("foo"), before(first('/')), first("bar")).collect(firstOccurrence());
+    assertThat(pattern.repeatedly().from("foo/bar")).containsExactly("foo", "", "bar").inOrder();
+  }
+
+  @Test
+  public void firstOccurrence_literals_lookaround() {
+    Substring.Pattern pattern =
+        Stream.of("foo", "food", "bar").map(Substring::first).collect(firstOccurrence());
+    assertThat(pattern.immediatelyBetween("(", ")").repeatedly().from("foo (food) (bar)"))
+        .containsExactly("food", "bar")
+        .inOrder();
+    assertThat(pattern.separatedBy(CharPredicate.WORD.not()).repeatedly().from("food foo"))
+        .containsExactly("food", "foo")
+        .inOrder();
+  }
+
   @Test
   public void firstOccurrence_word() {
     Substring.Pattern pattern =
@@ -3720,6 +4173,63 @@ public class SubstringTest {
         .isEmpty();
   }
 
+  @Test public void testRegexTopLevelGroups_emptyGroup() {
+    assertThat(Substring.topLevelGroups(java.util.regex.Pattern.compile("(a*)(b)")).from("b"))
+        .containsExactly("", "b")
+        .inOrder();
+  }
+
+  @Test public void testRegexTopLevelGroups_interleavedStreams() {
+    Substring.RepeatingPattern groups =
+        Substring.topLevelGroups(java.util.regex.Pattern.compile("(\\w+)=(\\w+)"));
+    Iterator<String> first = groups.from("k1=v1").iterator();
+    Iterator<String> second = groups.from("k2=v2").iterator();
+    assertThat(first.next()).isEqualTo("k1");
+    assertThat(second.next()).isEqualTo("k2");
+    assertThat(first.next()).isEqualTo("v1");
+    assertThat(second.next()).isEqualTo("v2");
+    assertThat(first.hasNext()).isFalse();
+    assertThat(second.hasNext()).isFalse();
+  }
+
+  @Test public void regex_reusedAcrossInputs() {
+    Substring.Pattern pattern = first(Pattern.compile("(\\d+)-of-\\d+"), 1);
+    for (int i = 0; i < 100; i++) {
+      assertThat(pattern.from(i + "-of-100")).hasValue(String.valueOf(i));
+      assertThat(pattern.from("none")).isEmpty();
+    }
+  }
+
+  @Test public void regex_reentrantMatching() {
+    Substring.Pattern pattern = first(Pattern.compile("\\d+"));
+    CharSequence reentrant = new CharSequence() {
+      @Override public char charAt(int index) {
+        assertThat(pattern.from("x42")).hasValue("42");
+        return "abc123".charAt(index);
+      }
+
+      @Override public int length() {
+        return 6;
+      }
+
+      @Override public CharSequence subSequence(int begin, int end) {
+        return "abc123".subSequence(begin, end);
+      }
+    };
+    assertThat(pattern.from(reentrant)).hasValue("123");
+  }
+
+  @Test public void regex_usedByMultipleThreads() {
+    Substring.Pattern pattern = first(Pattern.compile("(\\d+)-of-\\d+"), 1);
+    assertThat(
+            IntStream.range(0, 10000)
+                .parallel()
+                .mapToObj(i -> pattern.from(i + "-of-10000").get())
+                .collect(toImmutableList()))
+        .isEqualTo(
+            IntStream.range(0, 10000).mapToObj(String::valueOf).collect(toImmutableList()));
+  }
+
   @Test public void match_isFollowedBy_notAtTheEnd() {
     Substring.Match match = first("foo").in("foobar").get();
     assertThat(match.isFollowedBy("a")).isFalse();
@@ -3777,6 +4287,401 @@ public class SubstringTest {
     assertThat(match.isImmediatelyBetween("", "")).isTrue();
   }
 
+  @Test public void in_stringBuilder() {
+    StringBuilder builder = new StringBuilder("foo=bar");
+    Substring.Match match = first('=').in(builder).get();
+    assertThat(match.index()).isEqualTo(3);
+    assertThat(match.before()).isEqualTo("foo");
+    assertThat(match.after()).isEqualTo("bar");
+    assertThat(match.fullString()).isEqualTo("foo=bar");
+    assertThat(match.remove()).isEqualTo("foobar");
+    assertThat(match.replaceWith(":")).isEqualTo("foo:bar");
+    assertThat(match.isPrecededBy("foo")).isTrue();
+    assertThat(match.isFollowedBy("bar")).isTrue();
+  }
+
+  @Test public void from_charBuffer() {
+    CharBuffer buffer = CharBuffer.wrap("GET /index.html HTTP/1.1\r\nHost: foo\r\n");
+    assertThat(Substring.between(' ', ' ').from(buffer)).hasValue("/index.html");
+    assertThat(first("HTTP/").toEnd().from(buffer)).hasValue("HTTP/1.1\r\nHost: foo\r\n");
+    assertThat(Substring.word("Host").in(buffer).map(Match::index)).hasValue(26);
+    assertThat(suffix("\r\n").in(buffer).map(Match::index)).hasValue(35);
+    assertThat(prefix("POST").in(buffer)).isEmpty();
+  }
+
+  @Test public void repeatedly_charBuffer() {
+    CharBuffer buffer = CharBuffer.wrap("k1=v1&k2=v2");
+    assertThat(first('&').repeatedly().split(buffer).map(Match::toString))
+        .containsExactly("k1=v1", "k2=v2")
+        .inOrder();
+    assertThat(first('=').repeatedly().match(buffer).map(Match::index))
+        .containsExactly(2, 8)
+        .inOrder();
+    assertKeyValues(first('&').repeatedly().splitKeyValuesAround(first('='), buffer))
+        .containsExactly("k1", "v1", "k2", "v2")
+        .inOrder();
+  }
+
+  @Test public void repeatedly_stringBuilder() {
+    StringBuilder builder = new StringBuilder("foo bar, baz");
+    assertThat(Substring.word().repeatedly().from(builder))
+        .containsExactly("foo", "bar", "baz")
+        .inOrder();
+    assertThat(last("ba").repeatedly().from(builder)).containsExactly("ba");
+    assertThat(firstOf("bar", "baz").repeatedly().from(builder))
+        .containsExactly("bar", "baz")
+        .inOrder();
+  }
+
+  @Test public void repeatedly_fromReader_noMatch() {
+    assertThat(first("foo").repeatedly().from(new StringReader(""))).isEmpty();
+    assertThat(first("foo").repeatedly().from(new StringReader("bar"))).isEmpty();
+  }
+
+  @Test public void repeatedly_fromReader_matches() {
+    assertThat(Substring.word().repeatedly().from(new StringReader("foo bar, baz")))
+        .containsExactly("foo", "bar", "baz")
+        .inOrder();
+    assertThat(firstOf("bar", "baz").repeatedly().from(new StringReader("foo bar, baz")))
+        .containsExactly("bar", "baz")
+        .inOrder();
+  }
+
+  @Test public void repeatedly_fromReader_matchesAcrossChunks() {
+    String record = "<record>" + String.join("", nCopies(1000, "data")) + "</record>";
+    String input = String.join("\n", nCopies(100, record));
+    Substring.Pattern pattern = Substring.between("<record>", "</record>");
+    assertThat(pattern.repeatedly().from(new StringReader(input)))
+        .containsExactlyElementsIn(nCopies(100, String.join("", nCopies(1000, "data"))));
+  }
+
+  @Test public void repeatedly_fromReader_lookaroundAcrossChunks() {
+    String input =
+        String.join("", nCopies(10000, "ab")) + " foo " + String.join("", nCopies(10000, "a"));
+    assertThat(Substring.word("foo").repeatedly().from(new StringReader(input)))
+        .containsExactly("foo");
+    assertThat(
+            first('a').immediatelyBetween(" foo ", "a").repeatedly().from(new StringReader(input)))
+        .containsExactly("a");
+  }
+
+  @Test public void repeatedly_fromReader_ioException() {
+    Reader reader = new Reader() {
+      @Override public int read(char[] buffer, int offset, int length) throws IOException {
+        throw new IOException("test");
+      }
+      @Override public void close() {}
+    };
+    UncheckedIOException thrown =
+        assertThrows(
+            UncheckedIOException.class, () -> first("foo").repeatedly().from(reader).count());
+    assertThat(thrown).hasCauseThat().hasMessageThat().isEqualTo("test");
+  }
+
+  @Test public void repeatedly_fromReader_dependsOnEndOfInput() {
+    String input = "a,b" + repeat("x", 40000) + "zzz,c";
+    Substring.Pattern pattern = first("zzz").or(first(','));
+    assertThat(pattern.repeatedly().from(new StringReader(input)))
+        .containsExactly("zzz", ",")
+        .inOrder();
+    assertThat(last(',').repeatedly().from(new StringReader(input))).containsExactly(",");
+  }
+
+  @Test public void repeatedly_fromReader_readsAheadAtMostOneChunk() {
+    assertReadAheadBounded(first(','), repeat("ab,", 1000000));
+    assertReadAheadBounded(firstOf("ab", "cd"), repeat("xab", 1000000));
+    assertReadAheadBounded(
+        first("needle"), repeat("x", 3000000) + "needle" + repeat("x", 3000000) + "needle");
+  }
+
+  @Test public void repeatedly_fromReader_unmatchedInputDiscarded() {
+    for (Substring.Pattern pattern :
+        ImmutableList.of(
+            first("foo"),
+            firstOf("foo", "bar"),
+            consecutive(CharPredicate.range('0', '9')),
+            Substring.between("<r>", "</r>"),
+            Substring.word("foo"),
+            first("foo").followedBy("bar"))) {
+      IncrementalMatcher matcher = new IncrementalMatcher(pattern, 8192, false);
+      for (int i = 0; i < 1000; i++) {
+        matcher.append(repeat("x", 8192));
+        assertThat(matcher.next()).isNull();
+        assertThat(matcher.buffered()).isAtMost(4 * 8192);
+      }
+    }
+  }
+
+  @Test public void repeatedly_fromReader_openDelimiterRetained() {
+    IncrementalMatcher matcher =
+        new IncrementalMatcher(Substring.between("<r>", "</r>"), 8192, false);
+    matcher.append("<r>");
+    for (int i = 0; i < 100; i++) {
+      matcher.append(repeat("x", 8192));
+      assertThat(matcher.next()).isNull();
+    }
+    matcher.append("</r>");
+    matcher.end();
+    assertThat(matcher.next().toString()).isEqualTo(repeat("x", 819200));
+  }
+
+  @Test public void repeatedly_tokenizer_emptyInput() {
+    assertThat(first("\r\n").repeatedly().tokenizer().finish()).containsExactly("");
+  }
+
+  @Test public void repeatedly_tokenizer_segmentsEmittedAsDelimitersArrive() {
+    Substring.Tokenizer lines = first("\r\n").repeatedly().tokenizer();
+    assertThat(lines.feed("GET / HTTP/1.1\r\nHost: ")).containsExactly("GET / HTTP/1.1");
+    assertThat(lines.feed("example.com\r")).isEmpty();
+    assertThat(lines.feed("\n\r\nbody")).containsExactly("Host: example.com", "").inOrder();
+    assertThat(lines.finish()).containsExactly("body");
+  }
+
+  @Test public void repeatedly_tokenizer_endsWithDelimiter() {
+    Substring.Tokenizer tokenizer = first(',').repeatedly().tokenizer();
+    assertThat(tokenizer.feed("a,b,")).containsExactly("a", "b").inOrder();
+    assertThat(tokenizer.finish()).containsExactly("");
+  }
+
+  @Test public void repeatedly_tokenizer_sameAsSplit() {
+    String input = "12a345bb6789cd0";
+    for (Substring.RepeatingPattern pattern :
+        ImmutableList.of(
+            first("bb").repeatedly(),
+            first(CharPredicate.range('a', 'z')).repeatedly(),
+            consecutive(CharPredicate.range('0', '9')).repeatedly(),
+            firstOf("b", "bb", "cd").repeatedly(),
+            Substring.topLevelGroups(Pattern.compile("(b)(b)")))) {
+      Substring.Tokenizer tokenizer = pattern.tokenizer();
+      List<String> segments = new ArrayList<>();
+      for (int i = 0; i < input.length(); i++) {
+        segments.addAll(tokenizer.feed(input.substring(i, i + 1)));
+      }
+      segments.addAll(tokenizer.finish());
+      assertThat(segments)
+          .containsExactlyElementsIn(
+              pattern.split(input).map(Match::toString).collect(toImmutableList()))
+          .inOrder();
+    }
+  }
+
+  @Test public void repeatedly_tokenizer_dependsOnEndOfInput_sameAsSplit() {
+    String input = "a,b" + repeat("x", 40000) + "zzz,c";
+    Substring.RepeatingPattern pattern = first("zzz").or(first(',')).repeatedly();
+    Substring.Tokenizer tokenizer = pattern.tokenizer();
+    List<String> segments = new ArrayList<>(tokenizer.feed(input.substring(0, 20000)));
+    segments.addAll(tokenizer.feed(input.substring(20000)));
+    segments.addAll(tokenizer.finish());
+    assertThat(segments)
+        .containsExactlyElementsIn(
+            pattern.split(input).map(Match::toString).collect(toImmutableList()))
+        .inOrder();
+  }
+
+  @Test public void repeatedly_tokenizer_consecutiveDelimiter_emittedWithoutWaitingForChunk() {
+    Substring.Tokenizer tokenizer = consecutive(CharPredicate.is(' ')).repeatedly().tokenizer();
+    assertThat(tokenizer.feed("foo  bar")).containsExactly("foo");
+    assertThat(tokenizer.feed("  baz")).containsExactly("bar");
+    assertThat(tokenizer.finish()).containsExactly("baz");
+  }
+
+  @Test public void repeatedly_tokenizer_longSegmentFedInSmallChunks() {
+    Substring.Tokenizer lines = first("\r\n").repeatedly().tokenizer();
+    for (int i = 0; i < 100000; i++) {
+      assertThat(lines.feed("x")).isEmpty();
+    }
+    assertThat(lines.feed("\r\n")).containsExactly(String.join("", nCopies(100000, "x")));
+    assertThat(lines.finish()).containsExactly("");
+  }
+
+  @Test public void repeatedly_tokenizer_finished() {
+    Substring.Tokenizer tokenizer = first(',').repeatedly().tokenizer();
+    tokenizer.finish();
+    assertThrows(IllegalStateException.class, () -> tokenizer.feed("a"));
+    assertThrows(IllegalStateException.class, tokenizer::finish);
+  }
+
+  @Test public void repeatedly_splitByteBuffer_noMatch() {
+    ByteBuffer bytes = ByteBuffer.wrap("foo".getBytes(UTF_8));
+    assertThat(first('\n').repeatedly().split(bytes).map(UTF_8::decode).map(Object::toString))
+        .containsExactly("foo");
+  }
+
+  @Test public void repeatedly_splitByteBuffer_empty() {
+    ByteBuffer bytes = ByteBuffer.allocate(0);
+    assertThat(first('\n').repeatedly().split(bytes).map(ByteBuffer::remaining))
+        .containsExactly(0);
+  }
+
+  @Test public void repeatedly_splitByteBuffer_utf8() {
+    ByteBuffer bytes = ByteBuffer.wrap("foo\r\n中文\r\n\r\nbär".getBytes(UTF_8));
+    assertThat(first("\r\n").repeatedly().split(bytes).map(UTF_8::decode).map(Object::toString))
+        .containsExactly("foo", "中文", "", "bär")
+        .inOrder();
+  }
+
+  @Test public void repeatedly_splitByteBuffer_fromPositionToLimit() {
+    ByteBuffer bytes = ByteBuffer.wrap("[a,b,c]".getBytes(UTF_8));
+    bytes.position(1).limit(6);
+    assertThat(first(',').repeatedly().split(bytes).map(UTF_8::decode).map(Object::toString))
+        .containsExactly("a", "b", "c")
+        .inOrder();
+    assertThat(bytes.position()).isEqualTo(1);
+    assertThat(bytes.limit()).isEqualTo(6);
+  }
+
+  @Test public void repeatedly_splitByteBuffer_slicesShareContent() {
+    ByteBuffer bytes = ByteBuffer.allocateDirect(7).put("foo,bar".getBytes(UTF_8));
+    bytes.flip();
+    ByteBuffer bar = first(',').repeatedly().split(bytes).skip(1).findFirst().get();
+    assertThat(bar.remaining()).isEqualTo(3);
+    bytes.put(4, (byte) 'c');
+    assertThat(UTF_8.decode(bar).toString()).isEqualTo("car");
+  }
+
+  @Test public void repeatedly_splitByteBuffer_longLines() {
+    String line = String.join("", nCopies(100, "é0123456789"));
+    for (ByteOrder order : ImmutableList.of(ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN)) {
+      ByteBuffer bytes = ByteBuffer.wrap((line + "\r\n" + line + "\n").getBytes(UTF_8));
+      bytes.order(order);
+      assertThat(first('\n').repeatedly().split(bytes).map(UTF_8::decode).map(Object::toString))
+          .containsExactly(line + "\r", line, "")
+          .inOrder();
+      assertThat(first("\r\n").repeatedly().split(bytes).map(UTF_8::decode).map(Object::toString))
+          .containsExactly(line, line + "\n")
+          .inOrder();
+    }
+  }
+
+  @Test public void repeatedly_split_parallel_charDelimiter() {
+    String input = String.join(",", nCopies(10000, "foo"));
+    assertThat(first(',').repeatedly().split(input).parallel().map(Match::toString))
+        .containsExactlyElementsIn(nCopies(10000, "foo"))
+        .inOrder();
+    assertThat(first(',').repeatedly().split(input).spliterator().trySplit()).isNotNull();
+  }
+
+  @Test public void repeatedly_split_parallel_stringDelimiter() {
+    String input = String.join("\r\n", nCopies(10000, "foo")) + "\r\n";
+    assertThat(first("\r\n").repeatedly().split(input).parallel().map(Match::toString))
+        .containsExactlyElementsIn(
+            ImmutableList.builder().addAll(nCopies(10000, "foo")).add("").build())
+        .inOrder();
+    assertThat(first("\r\n").repeatedly().split(input).spliterator().trySplit()).isNotNull();
+  }
+
+  @Test public void repeatedly_split_parallel_selfOverlappingDelimiter() {
+    String input = String.join("", nCopies(10000, "aab"));
+    assertThat(first("aa").repeatedly().split(input).parallel().map(Match::toString))
+        .containsExactlyElementsIn(
+            ImmutableList.builder().add("").addAll(nCopies(10000, "b")).build())
+        .inOrder();
+  }
+
+  @Test public void repeatedly_split_parallel_noDelimiter() {
+    String input = String.join("", nCopies(10000, "foo"));
+    assertThat(first(',').repeatedly().split(input).parallel().map(Match::toString))
+        .containsExactly(input);
+  }
+
+  @Test public void first_longLiteral() {
+    String marker = "--boundary-0123456789abcdef--";
+    String input = String.join("", nCopies(1000, "=boundary-0123456789abcdef=")) + marker + "tail";
+    assertThat(first(marker).in(input).get().index()).isEqualTo(27000);
+    assertThat(first(marker).in(new StringBuilder(input)).get().index()).isEqualTo(27000);
+    assertThat(first(marker).repeatedly().from(input + marker)).containsExactly(marker, marker);
+    assertThat(first(marker).from(input.substring(1))).hasValue(marker);
+    assertThat(first(marker).from(input.substring(0, input.length() - 5))).isEmpty();
+  }
+
+  @Test public void first_longLiteral_nonAscii() {
+    // 'ā' (U+0101) and 'ȁ' (U+0201) share the same low byte.
+    String literal = "ȁāȁāȁāȁāȁāȁāȁāȁā";
+    assertThat(first(literal).in("āāȁāȁāȁāȁāȁāȁāȁāȁāȁ").get().index()).isEqualTo(2);
+    assertThat(first(literal).from("ȁāȁāȁāȁāȁāȁāȁāȁȁ")).isEmpty();
+    assertThat(last(literal).in("āȁāȁāȁāȁāȁāȁāȁāȁāȁ").get().index()).isEqualTo(1);
+  }
+
+  @Test public void last_longLiteral() {
+    String marker = "--boundary-0123456789abcdef--";
+    String input = marker + String.join("", nCopies(1000, "=boundary-0123456789abcdef=")) + marker;
+    assertThat(last(marker).in(input).get().index()).isEqualTo(27000 + marker.length());
+    assertThat(last(marker).in(new StringBuilder(input)).get().index())
+        .isEqualTo(27000 + marker.length());
+    assertThat(last(marker).from(input.substring(0, input.length() - 1))).hasValue(marker);
+    assertThat(last(marker).in(input.substring(0, input.length() - 1)).get().index()).isEqualTo(0);
+    assertThat(last(marker).from(input.substring(1, input.length() - 1))).isEmpty();
+  }
+
+  @Test public void between_longLiterals() {
+    String open = "<!-- BEGIN GENERATED SECTION -->";
+    String close = "<!-- END GENERATED SECTION -->";
+    String input = "header " + open + "generated" + close + " footer";
+    assertThat(Substring.between(open, close).from(input)).hasValue("generated");
+    assertThat(spanningInOrder(open, "generated", close).from(input))
+        .hasValue(open + "generated" + close);
+  }
+
+  @Test public void replacing_noRule() {
+    assertThat(Substring.replacing(ImmutableMap.of()).apply("foo")).isEqualTo("foo");
+  }
+
+  @Test public void replacing_noMatch() {
+    String input = "foo";
+    assertThat(Substring.replacing(ImmutableMap.of(first('x'), m -> "y")).apply(input))
+        .isSameAs(input);
+  }
+
+  @Test public void replacing_multipleRules() {
+    UnaryOperator<String> escape =
+        Substring.replacing(
+            ImmutableMap.of(
+                first('&'), m -> "&amp;",
+                first('<'), m -> "&lt;",
+                first('>'), m -> "&gt;"));
+    assertThat(escape.apply("<a href='x&y'>link</a>"))
+        .isEqualTo("&lt;a href='x&amp;y'&gt;link&lt;/a&gt;");
+    assertThat(escape.apply("")).isEmpty();
+  }
+
+  @Test public void replacing_replacementNotRescanned() {
+    UnaryOperator<String> swap =
+        Substring.replacing(ImmutableMap.of(first("a"), m -> "b", first("b"), m -> "a"));
+    assertThat(swap.apply("abba")).isEqualTo("baab");
+  }
+
+  @Test public void replacing_leftmostMatchWins() {
+    UnaryOperator<String> replacer =
+        Substring.replacing(
+            ImmutableMap.of(first("bc"), m -> "<bc>", consecutive(CharPredicate.ALPHA), m -> "*"));
+    assertThat(replacer.apply("abc bc")).isEqualTo("* <bc>");
+  }
+
+  @Test public void replacing_sameIndex_firstRuleWins() {
+    assertThat(
+            Substring.replacing(ImmutableMap.of(first("ab"), m -> "1", first("abc"), m -> "2"))
+                .apply("abcd"))
+        .isEqualTo("1cd");
+    assertThat(
+            Substring.replacing(ImmutableMap.of(first("abc"), m -> "2", first("ab"), m -> "1"))
+                .apply("abcd"))
+        .isEqualTo("2d");
+  }
+
+  @Test public void replacing_replacementFunctionReceivesMatch() {
+    UnaryOperator<String> replacer =
+        Substring.replacing(
+            ImmutableMap.of(
+                consecutive(CharPredicate.range('0', '9')), m -> "#" + m.length(),
+                Substring.word(), m -> Ascii.toUpperCase(m.toString())));
+    assertThat(replacer.apply("abc 12, x")).isEqualTo("ABC #2, X");
+  }
+
+  @Test public void replacing_nullReplacement() {
+    UnaryOperator<String> replacer = Substring.replacing(ImmutableMap.of(first('x'), m -> null));
+    assertThrows(NullPointerException.class, () -> replacer.apply("axb"));
+  }
+
   @Test public void testNulls() throws Exception {
     new NullPointerTester().testAllPublicInstanceMethods(prefix("foo").in("foobar").get());
     newClassSanityTester().testNulls(Substring.class);
@@ -3812,6 +4717,23 @@ public class SubstringTest {
         });
   }
 
+  private static void assertReadAheadBounded(Substring.Pattern pattern, String input) {
+    int[] charsRead = {0};
+    Reader reader = new StringReader(input) {
+      @Override public int read(char[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        charsRead[0] += Math.max(read, 0);
+        return read;
+      }
+    };
+    int[] matchEnd = {0};
+    pattern.repeatedly().from(reader).forEach(match -> {
+      matchEnd[0] = input.indexOf(match, matchEnd[0]) + match.length();
+      assertThat(charsRead[0] - matchEnd[0]).isAtMost(2 * 8192);
+    });
+    assertThat(matchEnd[0]).isEqualTo(input.length());
+  }
+
   private static String repeat(String s, int times) {
     return String.join("", nCopies(times, s));
   }
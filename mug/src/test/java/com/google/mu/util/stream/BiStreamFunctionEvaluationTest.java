@@ -351,6 +351,40 @@ public final class BiStreamFunctionEvaluationTest extends TestCase {
     assertThat(evaluatedValues).containsExactly(1, 2, 3).inOrder();
   }
 
+  @Test public void testChainedFilterPeekDistinctSorted_bothFunctionsCalledOnce() {
+    List<String> peeked = new ArrayList<>();
+    assertKeyValues(
+            biStream(Stream.of(3, 1, 2, 3), Object::toString, i -> i * 10)
+                .filter((k, v) -> v > 10)
+                .peek((k, v) -> peeked.add(k))
+                .distinct()
+                .sortedByKeys(Comparator.naturalOrder()))
+        .containsExactly("2", 20, "3", 30)
+        .inOrder();
+    assertThat(peeked).containsExactly("3", "2", "3").inOrder();
+    assertThat(evaluatedKeys).containsExactly(3, 1, 2, 3).inOrder();
+    assertThat(evaluatedValues).containsExactly(3, 1, 2, 3).inOrder();
+  }
+
+  @Test public void testFilter_functionsNotCalledUntilTerminalOperation() {
+    BiStream<String, Integer> filtered =
+        biStream(Stream.of(1, 2, 3), Object::toString, i -> i * 10).filter((k, v) -> v > 10);
+    assertThat(evaluatedKeys).isEmpty();
+    assertThat(filtered.keys()).containsExactly("2", "3").inOrder();
+    assertThat(evaluatedKeys).containsExactly(1, 2, 3).inOrder();
+  }
+
+  @Test public void testFilter_shortCircuits() {
+    assertThat(
+            biStream(Stream.of(1, 2, 3), Object::toString, i -> i * 10)
+                .filter((k, v) -> v > 10)
+                .findFirst()
+                .map((k, v) -> k))
+        .hasValue("2");
+    assertThat(evaluatedKeys).containsExactly(1, 2).inOrder();
+    assertThat(evaluatedValues).containsExactly(1, 2).inOrder();
+  }
+
   private <K, V, T> BiStream<K, V> biStream(
       Stream<T> stream,
       Function<? super T, ? extends K> toKey,
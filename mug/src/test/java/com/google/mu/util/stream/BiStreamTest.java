@@ -33,7 +33,9 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -64,6 +66,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.truth.IterableSubject;
 import com.google.common.truth.MultimapSubject;
 import com.google.mu.util.BiOptional;
+import com.google.mu.util.Both;
 import com.google.mu.util.Substring;
 
 @RunWith(JUnit4.class)
@@ -357,6 +360,66 @@ public class BiStreamTest {
     assertThat(rightClosed.get()).isTrue();
   }
 
+  @Test public void testZip_filterThenSorted_closesBothLeftAndRight() {
+    AtomicBoolean leftClosed = new AtomicBoolean();
+    AtomicBoolean rightClosed = new AtomicBoolean();
+    Stream<Integer> left = Stream.of(2, 1, 3).onClose(() -> leftClosed.set(true));
+    Stream<String> right = Stream.of("two", "one", "three").onClose(() -> rightClosed.set(true));
+    try (BiStream<Integer, String> stream =
+        BiStream.zip(left, right).filter((i, s) -> i < 3).sortedByKeys(Comparator.naturalOrder())) {
+      assertThat(stream.toMap()).containsExactly(1, "one", 2, "two").inOrder();
+    }
+    assertThat(leftClosed.get()).isTrue();
+    assertThat(rightClosed.get()).isTrue();
+  }
+
+  @Test public void testSortedByKeys_stable() {
+    assertThat(
+            BiStream.zip(Stream.of(2, 1, 2, 1), Stream.of("a", "b", "c", "d"))
+                .sortedByKeys(Comparator.naturalOrder())
+                .values()
+                .collect(toList()))
+        .containsExactly("b", "d", "a", "c")
+        .inOrder();
+  }
+
+  @Test public void testDistinct_nullKeysAndValues() {
+    assertThat(
+            BiStream.zip(asList(null, 1, null, 1), asList("a", null, "a", "b"))
+                .distinct()
+                .mapToObj((k, v) -> k + ":" + v)
+                .collect(toList()))
+        .containsExactly("null:a", "1:null", "1:b")
+        .inOrder();
+  }
+
+  @Test public void testZip_randomAccessLists_sized() {
+    List<Integer> left = IntStream.range(0, 100).boxed().collect(toList());
+    List<String> right = asList("a", "b", "c");
+    Stream<String> zipped = BiStream.zip(left, right).mapToObj((i, s) -> s + i);
+    assertThat(zipped.spliterator().getExactSizeIfKnown()).isEqualTo(3L);
+  }
+
+  @Test public void testZip_randomAccessLists_parallel() {
+    List<Integer> left = IntStream.range(0, 10000).boxed().collect(toList());
+    List<Integer> right = IntStream.range(0, 10000).map(i -> i * 2).boxed().collect(toList());
+    assertThat(
+            BiStream.zip(left, right).mapToObj((i, j) -> j - i).parallel().collect(toList()))
+        .containsExactlyElementsIn(left)
+        .inOrder();
+    assertThat(BiStream.zip(left, right).mapToLong((i, j) -> j - i).parallel().sum())
+        .isEqualTo(10000L * 9999 / 2);
+  }
+
+  @Test public void testZip_randomAccessLists_lateBinding() {
+    List<Integer> left = new ArrayList<>();
+    List<String> right = new ArrayList<>();
+    BiStream<Integer, String> zipped = BiStream.zip(left, right);
+    left.add(1);
+    right.add("one");
+    assertThat(zipped.toMap()).containsExactly(1, "one");
+  }
+
   @Test public void testZip_mapToObj_lateBindingConsistentWithJdk() {
     Map<Integer, String> dict = new HashMap<>();
     Stream<String> jdk = dict.entrySet().stream().map(e -> e.getKey() + ":" + e.getValue());
@@ -1053,6 +1116,97 @@ public class BiStreamTest {
     }
   }
 
+  @Test public void innerJoin() {
+    BiStream<Integer, String> left = BiStream.of(1, "a", 2, "b", 3, "c", 1, "d");
+    BiStream<Integer, String> right = BiStream.of(1, "x", 3, "y", 1, "z", 4, "w");
+    assertThat(left.innerJoin(right).mapToObj((k, both) -> k + ":" + both.andThen(String::concat)))
+        .containsExactly("1:ax", "1:az", "3:cy", "1:dx", "1:dz")
+        .inOrder();
+  }
+
+  @Test public void innerJoin_noMatch() {
+    assertThat(BiStream.of(1, "a").innerJoin(BiStream.of(2, "x")).toMap()).isEmpty();
+    assertThat(BiStream.of(1, "a").innerJoin(BiStream.empty()).toMap()).isEmpty();
+  }
+
+  @Test public void innerJoin_otherClosed() {
+    AtomicBoolean closed = new AtomicBoolean();
+    BiStream<Integer, String> other =
+        BiStream.zip(Stream.of(1).onClose(() -> closed.set(true)), Stream.of("x"));
+    BiStream<Integer, Both<String, String>> joined = BiStream.of(1, "a").innerJoin(other);
+    assertThat(closed.get()).isTrue();
+    assertThat(joined.mapToObj((k, both) -> both.andThen(String::concat))).containsExactly("ax");
+  }
+
+  @Test public void leftJoin() {
+    BiStream<Integer, String> left = BiStream.of(1, "a", 2, "b", 1, "c");
+    BiStream<Integer, String> right = BiStream.of(1, "x", 1, "y");
+    assertThat(left.leftJoin(right).mapToObj((k, both) -> k + ":" + both.andThen((l, r) -> l + r)))
+        .containsExactly("1:ax", "1:ay", "2:bnull", "1:cx", "1:cy")
+        .inOrder();
+  }
+
+  @Test public void leftJoin_probedLazily() {
+    List<Integer> probed = new ArrayList<>();
+    BiStream<Integer, Both<String, String>> joined =
+        BiStream.of(1, "a", 2, "b", 3, "c")
+            .peek((k, v) -> probed.add(k))
+            .leftJoin(BiStream.of(2, "x"));
+    assertThat(probed).isEmpty();
+    assertThat(joined.limit(2).keys()).containsExactly(1, 2).inOrder();
+    assertThat(probed).containsExactly(1, 2).inOrder();
+  }
+
+  @Test public void mergeJoin() {
+    BiStream<Integer, String> left = BiStream.of(1, "a", 1, "b", 2, "c", 4, "d", 5, "e");
+    BiStream<Integer, String> right = BiStream.of(0, "w", 1, "x", 1, "y", 4, "z", 6, "v");
+    assertThat(
+            left.mergeJoin(right, Comparator.naturalOrder())
+                .mapToObj((k, both) -> k + ":" + both.andThen(String::concat)))
+        .containsExactly("1:ax", "1:ay", "1:bx", "1:by", "4:dz")
+        .inOrder();
+  }
+
+  @Test public void mergeJoin_descendingOrder() {
+    BiStream<Integer, String> left = BiStream.of(3, "a", 2, "b", 1, "c");
+    BiStream<Integer, String> right = BiStream.of(3, "x", 1, "y");
+    assertThat(
+            left.mergeJoin(right, Comparator.reverseOrder())
+                .mapToObj((k, both) -> k + ":" + both.andThen(String::concat)))
+        .containsExactly("3:ax", "1:cy")
+        .inOrder();
+  }
+
+  @Test public void mergeJoin_leftNotSorted() {
+    BiStream<Integer, Both<String, String>> joined =
+        BiStream.of(2, "a", 1, "b")
+            .mergeJoin(BiStream.of(1, "x", 2, "y"), Comparator.naturalOrder());
+    IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, joined::count);
+    assertThat(thrown).hasMessageThat().contains("[2] followed by [1]");
+  }
+
+  @Test public void mergeJoin_rightNotSorted() {
+    BiStream<Integer, Both<String, String>> joined =
+        BiStream.of(1, "a", 2, "b")
+            .mergeJoin(BiStream.of(2, "x", 1, "y"), Comparator.naturalOrder());
+    assertThrows(IllegalArgumentException.class, joined::count);
+  }
+
+  @Test public void mergeJoin_bothClosed() {
+    AtomicBoolean leftClosed = new AtomicBoolean();
+    AtomicBoolean rightClosed = new AtomicBoolean();
+    BiStream<Integer, String> left =
+        BiStream.zip(Stream.of(1).onClose(() -> leftClosed.set(true)), Stream.of("a"));
+    BiStream<Integer, String> right =
+        BiStream.zip(Stream.of(1).onClose(() -> rightClosed.set(true)), Stream.of("x"));
+    try (BiStream<Integer, Both<String, String>> joined =
+        left.mergeJoin(right, Comparator.naturalOrder())) {
+      assertThat(joined.count()).isEqualTo(1L);
+    }
+    assertThat(leftClosed.get()).isTrue();
+    assertThat(rightClosed.get()).isTrue();
+  }
+
   private static final class PaginationRequest {
     final int from;
     final int pageSize;
@@ -0,0 +1,170 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Comparator.naturalOrder;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.mu.util.stream.ExternalGrouping.Serializer;
+
+@RunWith(JUnit4.class)
+public class ExternalGroupingTest {
+  private static final Serializer<Integer> INTS =
+      Serializer.of(DataOutput::writeInt, DataInput::readInt);
+  private static final Serializer<String> STRINGS =
+      Serializer.of(DataOutput::writeUTF, DataInput::readUTF);
+
+  @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test public void noSpill_groupsInKeyOrder() {
+    BiStream<Integer, String> groups =
+        Stream.of(3, 1, 13, 2, 11)
+            .collect(
+                BiStream.groupingBy(i -> i % 10, String::valueOf, String::concat, spilling(10)));
+    assertThat(groups.toMap()).containsExactly(1, "111", 2, "2", 3, "313").inOrder();
+    assertThat(tmp.getRoot().list()).isEmpty();
+  }
+
+  @Test public void spilled_sameAsInMemory() {
+    List<Integer> numbers =
+        IntStream.range(0, 1000).map(i -> i * 37 % 1000).boxed().collect(toList());
+    Map<Integer, String> inMemory =
+        numbers.stream()
+            .collect(BiStream.groupingBy(i -> i % 97, String::valueOf, String::concat))
+            .sortedByKeys(naturalOrder())
+            .toMap();
+    BiStream<Integer, String> spilled =
+        numbers.stream()
+            .collect(
+                BiStream.groupingBy(i -> i % 97, String::valueOf, String::concat, spilling(5)));
+    assertThat(tmp.getRoot().list()).isNotEmpty();
+    assertThat(spilled.toMap()).containsExactlyEntriesIn(inMemory).inOrder();
+    assertThat(tmp.getRoot().list()).isEmpty();
+  }
+
+  @Test public void spilled_parallel() {
+    List<Integer> numbers = IntStream.range(0, 10000).boxed().collect(toList());
+    Map<Integer, Integer> sums =
+        numbers.parallelStream()
+            .collect(BiStream.groupingBy(i -> i % 100, i -> i, Integer::sum, spillingInts(7)))
+            .toMap();
+    assertThat(sums).hasSize(100);
+    assertThat(sums.get(0)).isEqualTo(495000);
+    assertThat(sums.get(99)).isEqualTo(504900);
+    assertThat(tmp.getRoot().list()).isEmpty();
+  }
+
+  @Test public void spilled_closedBeforeExhausted() {
+    try (BiStream<Integer, String> groups =
+        IntStream.range(0, 100)
+            .boxed()
+            .collect(
+                BiStream.groupingBy(i -> i % 50, String::valueOf, String::concat, spilling(3)))) {
+      assertThat(groups.limit(2).toMap()).containsExactly(0, "050", 1, "151").inOrder();
+    }
+    assertThat(tmp.getRoot().list()).isEmpty();
+  }
+
+  @Test public void spilled_atMostMaxGroupsInMemory() {
+    BiStream<Integer, String> groups =
+        Stream.of(1, 2, 3, 4, 5)
+            .collect(BiStream.groupingBy(i -> i, String::valueOf, String::concat, spilling(2)));
+    assertThat(tmp.getRoot().list()).hasLength(2);
+    assertThat(groups.toMap()).containsExactly(1, "1", 2, "2", 3, "3", 4, "4", 5, "5").inOrder();
+    assertThat(tmp.getRoot().list()).isEmpty();
+  }
+
+  @Test public void classifierFailure_spilledRunsDeleted() {
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            IntStream.range(0, 100)
+                .boxed()
+                .collect(
+                    BiStream.groupingBy(
+                        i -> {
+                          if (i == 50) {
+                            throw new IllegalStateException();
+                          }
+                          return i;
+                        },
+                        String::valueOf,
+                        String::concat,
+                        spilling(3))));
+    assertThat(tmp.getRoot().list()).isEmpty();
+  }
+
+  @Test public void readFailure_spilledRunsDeleted() {
+    Serializer<Integer> unreadable =
+        Serializer.of(
+            DataOutput::writeInt,
+            in -> {
+              throw new IOException("corrupted");
+            });
+    ExternalGrouping<Integer, Integer> spilling =
+        ExternalGrouping.of(naturalOrder(), unreadable, INTS)
+            .withMaxGroupsInMemory(3)
+            .inDirectory(tmp.getRoot().toPath());
+    assertThrows(
+        UncheckedIOException.class,
+        () ->
+            IntStream.range(0, 10)
+                .boxed()
+                .collect(BiStream.groupingBy(i -> i, i -> i, Integer::sum, spilling)));
+    assertThat(tmp.getRoot().list()).isEmpty();
+  }
+
+  @Test public void biCollectors_groupingBy() {
+    BiStream<Integer, String> groups =
+        BiStream.of(1, "a", 2, "b", 11, "c", 12, "d", 21, "e")
+            .collect(BiCollectors.groupingBy(k -> k % 10, String::concat, spilling(1)));
+    assertThat(groups.toMap()).containsExactly(1, "ace", 2, "bd").inOrder();
+    assertThat(tmp.getRoot().list()).isEmpty();
+  }
+
+  @Test public void withMaxGroupsInMemory_notPositive() {
+    ExternalGrouping<Integer, String> spilling = ExternalGrouping.of(naturalOrder(), INTS, STRINGS);
+    assertThrows(IllegalArgumentException.class, () -> spilling.withMaxGroupsInMemory(0));
+  }
+
+  private ExternalGrouping<Integer, String> spilling(int maxGroupsInMemory) {
+    return ExternalGrouping.of(naturalOrder(), INTS, STRINGS)
+        .withMaxGroupsInMemory(maxGroupsInMemory)
+        .inDirectory(tmp.getRoot().toPath());
+  }
+
+  private ExternalGrouping<Integer, Integer> spillingInts(int maxGroupsInMemory) {
+    return ExternalGrouping.of(naturalOrder(), INTS, INTS)
+        .withMaxGroupsInMemory(maxGroupsInMemory)
+        .inDirectory(tmp.getRoot().toPath());
+  }
+}
@@ -0,0 +1,280 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.collect.ImmutableMap;
+
+@RunWith(JUnit4.class)
+public class LongObjStreamTest {
+  @Test public void empty() {
+    assertThat(LongObjStream.empty().toMap()).isEmpty();
+    assertThat(LongObjStream.empty().count()).isEqualTo(0);
+  }
+
+  @Test public void fromCollection() {
+    assertThat(LongObjStream.from(asList("a", "bb", "ccc"), String::length, s -> s).toMap())
+        .containsExactly(1L, "a", 2L, "bb", 3L, "ccc")
+        .inOrder();
+  }
+
+  @Test public void fromStream_functionsCalledOncePerElement() {
+    AtomicInteger keyCalls = new AtomicInteger();
+    AtomicInteger valueCalls = new AtomicInteger();
+    LongObjStream<String> stream =
+        LongObjStream.from(
+            Stream.of("a", "bb"),
+            s -> keyCalls.incrementAndGet(),
+            s -> s + valueCalls.incrementAndGet());
+    assertThat(stream.filterValues(v -> true).values().collect(toList()))
+        .containsExactly("a1", "bb2")
+        .inOrder();
+    assertThat(keyCalls.get()).isEqualTo(2);
+    assertThat(valueCalls.get()).isEqualTo(2);
+  }
+
+  @Test public void fromStream_sourceNotConsumedUntilTerminalOp() {
+    Stream<String> source = Stream.of("a", "bb");
+    LongObjStream.from(source, String::length, s -> s);
+    assertThat(source.count()).isEqualTo(2);
+  }
+
+  @Test public void fromBiStream() {
+    assertThat(LongObjStream.from(BiStream.of(1L, "one", 2L, "two")).toMap())
+        .containsExactly(1L, "one", 2L, "two")
+        .inOrder();
+  }
+
+  @Test public void fromBiStream_nullKey() {
+    LongObjStream<String> stream = LongObjStream.from(BiStream.of(null, "one"));
+    assertThrows(NullPointerException.class, stream::count);
+  }
+
+  @Test public void fromBiStream_sourceNotConsumedUntilTerminalOp() {
+    BiStream<Long, String> source = BiStream.of(1L, "one");
+    LongObjStream.from(source);
+    assertThat(source.toMap()).containsExactly(1L, "one");
+  }
+
+  @Test public void indexed() {
+    assertThat(LongObjStream.indexed(Stream.of("a", "b", "c")).toMap())
+        .containsExactly(0L, "a", 1L, "b", 2L, "c")
+        .inOrder();
+  }
+
+  @Test public void indexed_sourceNotConsumedUntilTerminalOp() {
+    Stream<String> source = Stream.of("a", "b");
+    LongObjStream.indexed(source);
+    assertThat(source.count()).isEqualTo(2);
+  }
+
+  @Test public void nullValuesAllowed() {
+    Map<Long, String> map = LongObjStream.indexed(Stream.of("a", null)).toMap();
+    assertThat(map).containsEntry(1L, null);
+    assertThat(map).hasSize(2);
+  }
+
+  @Test public void filter() {
+    assertThat(
+            LongObjStream.indexed(Stream.of("a", "b", "c", "d"))
+                .filter((i, v) -> i % 2 == 0 || v.equals("d"))
+                .toMap())
+        .containsExactly(0L, "a", 2L, "c", 3L, "d")
+        .inOrder();
+  }
+
+  @Test public void filterKeys() {
+    assertThat(
+            LongObjStream.indexed(Stream.of("a", "b", "c")).filterKeys(i -> i > 0).toMap())
+        .containsExactly(1L, "b", 2L, "c")
+        .inOrder();
+  }
+
+  @Test public void filterValues() {
+    assertThat(
+            LongObjStream.indexed(Stream.of("a", "b", "c"))
+                .filterValues(v -> !v.equals("b"))
+                .toMap())
+        .containsExactly(0L, "a", 2L, "c")
+        .inOrder();
+  }
+
+  @Test public void mapKeys() {
+    assertThat(LongObjStream.indexed(Stream.of("a", "b")).mapKeys(i -> i + 10).toMap())
+        .containsExactly(10L, "a", 11L, "b")
+        .inOrder();
+  }
+
+  @Test public void mapValues() {
+    assertThat(LongObjStream.indexed(Stream.of("a", "b")).mapValues(v -> v.toUpperCase()).toMap())
+        .containsExactly(0L, "A", 1L, "B")
+        .inOrder();
+    assertThat(LongObjStream.indexed(Stream.of("a", "b")).mapValues((i, v) -> v + i).toMap())
+        .containsExactly(0L, "a0", 1L, "b1")
+        .inOrder();
+  }
+
+  @Test public void peek() {
+    List<String> peeked = new ArrayList<>();
+    LongObjStream<String> stream =
+        LongObjStream.indexed(Stream.of("a", "b")).peek((i, v) -> peeked.add(i + v));
+    assertThat(peeked).isEmpty();
+    assertThat(stream.count()).isEqualTo(2);
+    assertThat(peeked).containsExactly("0a", "1b").inOrder();
+  }
+
+  @Test public void limit() {
+    assertThat(LongObjStream.indexed(Stream.of("a", "b", "c")).limit(2).toMap())
+        .containsExactly(0L, "a", 1L, "b")
+        .inOrder();
+    assertThat(LongObjStream.indexed(Stream.of("a", "b", "c")).limit(0).toMap()).isEmpty();
+    assertThat(LongObjStream.indexed(Stream.of("a")).limit(5).count()).isEqualTo(1);
+    assertThrows(IllegalArgumentException.class, () -> LongObjStream.empty().limit(-1));
+  }
+
+  @Test public void skip() {
+    assertThat(LongObjStream.indexed(Stream.of("a", "b", "c")).skip(2).toMap())
+        .containsExactly(2L, "c");
+    assertThat(LongObjStream.indexed(Stream.of("a", "b", "c")).skip(0).count()).isEqualTo(3);
+    assertThat(LongObjStream.indexed(Stream.of("a", "b", "c")).skip(5).count()).isEqualTo(0);
+    assertThrows(IllegalArgumentException.class, () -> LongObjStream.empty().skip(-1));
+  }
+
+  @Test public void groupConsecutiveBy() {
+    assertThat(
+            LongObjStream.from(asList(1, 2, 5, 6, 7, 20), i -> i / 5, i -> i)
+                .groupConsecutiveBy(k -> k, Collectors.summingInt(i -> i))
+                .toMap())
+        .containsExactly(0L, 3, 1L, 18, 4L, 20)
+        .inOrder();
+  }
+
+  @Test public void groupConsecutiveBy_sameGroupNotAdjacent() {
+    assertThat(
+            LongObjStream.from(asList(1, 2, 1), i -> i, i -> i)
+                .groupConsecutiveBy(k -> k, toList())
+                .values()
+                .collect(toList()))
+        .containsExactly(asList(1), asList(2), asList(1))
+        .inOrder();
+  }
+
+  @Test public void groupConsecutiveBy_empty() {
+    assertThat(LongObjStream.empty().groupConsecutiveBy(k -> k, toList()).count()).isEqualTo(0);
+  }
+
+  @Test public void keys() {
+    assertThat(LongObjStream.from(asList("a", "bb"), String::length, s -> s).keys().sum())
+        .isEqualTo(3);
+  }
+
+  @Test public void mapToObj() {
+    assertThat(
+            LongObjStream.indexed(Stream.of("a", "b"))
+                .mapToObj((i, v) -> v + i)
+                .collect(toList()))
+        .containsExactly("a0", "b1")
+        .inOrder();
+  }
+
+  @Test public void boxed() {
+    assertThat(LongObjStream.indexed(Stream.of("a", "b")).boxed().toMap())
+        .containsExactly(0L, "a", 1L, "b")
+        .inOrder();
+  }
+
+  @Test public void forEach() {
+    List<String> pairs = new ArrayList<>();
+    LongObjStream.indexed(Stream.of("a", "b")).forEach((i, v) -> pairs.add(i + v));
+    assertThat(pairs).containsExactly("0a", "1b").inOrder();
+  }
+
+  @Test public void matches() {
+    assertThat(LongObjStream.indexed(Stream.of("a", "b")).anyMatch((i, v) -> i == 1)).isTrue();
+    assertThat(LongObjStream.indexed(Stream.of("a", "b")).anyMatch((i, v) -> i == 2)).isFalse();
+    assertThat(LongObjStream.indexed(Stream.of("a", "b")).allMatch((i, v) -> i < 2)).isTrue();
+    assertThat(LongObjStream.indexed(Stream.of("a", "b")).allMatch((i, v) -> i < 1)).isFalse();
+    assertThat(LongObjStream.indexed(Stream.of("a", "b")).noneMatch((i, v) -> i > 1)).isTrue();
+    assertThat(LongObjStream.empty().allMatch((i, v) -> false)).isTrue();
+  }
+
+  @Test public void anyMatch_shortCircuits() {
+    List<Long> visited = new ArrayList<>();
+    assertThat(
+            LongObjStream.indexed(Stream.of("a", "b", "c"))
+                .peek((i, v) -> visited.add(i))
+                .anyMatch((i, v) -> v.equals("b")))
+        .isTrue();
+    assertThat(visited).containsExactly(0L, 1L).inOrder();
+  }
+
+  @Test public void collect() {
+    Map<Long, String> map =
+        LongObjStream.indexed(Stream.of("a", "b")).collect(new HashMap<Long, String>(), Map::put);
+    assertThat(map).isEqualTo(ImmutableMap.of(0L, "a", 1L, "b"));
+  }
+
+  @Test public void toMap_duplicateKey() {
+    LongObjStream<String> stream = LongObjStream.from(asList("a", "b"), s -> 1, s -> s);
+    IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, stream::toMap);
+    assertThat(thrown).hasMessageThat().isEqualTo("Duplicate key: [1]");
+  }
+
+  @Test public void toMap_immutable() {
+    Map<Long, String> map = LongObjStream.indexed(Stream.of("a")).toMap();
+    assertThrows(UnsupportedOperationException.class, () -> map.put(1L, "b"));
+  }
+
+  @Test public void terminalOpTwice_throws() {
+    LongObjStream<String> stream = LongObjStream.indexed(Stream.of("a"));
+    assertThat(stream.count()).isEqualTo(1);
+    assertThrows(IllegalStateException.class, stream::count);
+    assertThrows(IllegalStateException.class, () -> stream.forEach((i, v) -> {}));
+  }
+
+  @Test public void operatedUponAfterIntermediateOp_throws() {
+    LongObjStream<String> stream = LongObjStream.indexed(Stream.of("a"));
+    LongObjStream<String> filtered = stream.filterKeys(i -> true);
+    assertThrows(IllegalStateException.class, () -> stream.mapKeys(i -> i));
+    assertThrows(IllegalStateException.class, stream::keys);
+    assertThat(filtered.toMap()).containsExactly(0L, "a");
+  }
+
+  @Test public void close() {
+    AtomicBoolean closed = new AtomicBoolean();
+    Stream<String> values = Stream.of("a").onClose(() -> closed.set(true));
+    try (LongObjStream<String> stream = LongObjStream.indexed(values).filterKeys(i -> true)) {
+      assertThat(stream.count()).isEqualTo(1);
+    }
+    assertThat(closed.get()).isTrue();
+  }
+}